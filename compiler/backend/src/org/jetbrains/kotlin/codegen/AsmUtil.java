@@ -618,17 +618,17 @@ public class AsmUtil {
 
         ReceiverParameterDescriptor receiverParameter = descriptor.getExtensionReceiverParameter();
         if (receiverParameter != null) {
-            genParamAssertion(v, state.getTypeMapper(), frameMap, receiverParameter, "$receiver");
+            genParamAssertion(v, state, frameMap, receiverParameter, "$receiver");
         }
 
         for (ValueParameterDescriptor parameter : descriptor.getValueParameters()) {
-            genParamAssertion(v, state.getTypeMapper(), frameMap, parameter, parameter.getName().asString());
+            genParamAssertion(v, state, frameMap, parameter, parameter.getName().asString());
         }
     }
 
     private static void genParamAssertion(
             @NotNull InstructionAdapter v,
-            @NotNull KotlinTypeMapper typeMapper,
+            @NotNull GenerationState state,
             @NotNull FrameMap frameMap,
             @NotNull CallableDescriptor parameter,
             @NotNull String name
@@ -637,18 +637,32 @@ public class AsmUtil {
         if (type == null || isNullableType(type)) return;
 
         int index = frameMap.getIndex(parameter);
-        Type asmType = typeMapper.mapType(type);
+        Type asmType = state.getTypeMapper().mapType(type);
         if (asmType.getSort() == Type.OBJECT || asmType.getSort() == Type.ARRAY) {
             v.load(index, asmType);
-            v.visitLdcInsn(name);
-            v.invokestatic(IntrinsicMethods.INTRINSICS_CLASS_NAME, "checkParameterIsNotNull",
-                           "(Ljava/lang/Object;Ljava/lang/String;)V", false);
+            if (state.getUseCompactNullChecks()) {
+                genCompactNullCheck(v, "throwParameterIsNull", name);
+            }
+            else {
+                v.visitLdcInsn(name);
+                v.invokestatic(IntrinsicMethods.INTRINSICS_CLASS_NAME, "checkParameterIsNotNull",
+                               "(Ljava/lang/Object;Ljava/lang/String;)V", false);
+            }
         }
     }
 
+    // The message is only loaded if the value on the stack is null, so the check is just a branch which is never taken
+    private static void genCompactNullCheck(@NotNull InstructionAdapter v, @NotNull String throwMethodName, @NotNull String message) {
+        Label nonNull = new Label();
+        v.ifnonnull(nonNull);
+        v.visitLdcInsn(message);
+        v.invokestatic(IntrinsicMethods.INTRINSICS_CLASS_NAME, throwMethodName, "(Ljava/lang/String;)V", false);
+        v.mark(nonNull);
+    }
+
     @NotNull
     public static StackValue genNotNullAssertions(
-            @NotNull GenerationState state,
+            @NotNull final GenerationState state,
             @NotNull final StackValue stackValue,
             @Nullable final RuntimeAssertionInfo runtimeAssertionInfo
     ) {
@@ -662,9 +676,14 @@ public class AsmUtil {
                 stackValue.put(type, v);
                 if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
                     v.dup();
-                    v.visitLdcInsn(runtimeAssertionInfo.getMessage());
-                    v.invokestatic("kotlin/jvm/internal/Intrinsics", "checkExpressionValueIsNotNull",
-                                   "(Ljava/lang/Object;Ljava/lang/String;)V", false);
+                    if (state.getUseCompactNullChecks()) {
+                        genCompactNullCheck(v, "throwExpressionValueIsNull", runtimeAssertionInfo.getMessage());
+                    }
+                    else {
+                        v.visitLdcInsn(runtimeAssertionInfo.getMessage());
+                        v.invokestatic("kotlin/jvm/internal/Intrinsics", "checkExpressionValueIsNotNull",
+                                       "(Ljava/lang/Object;Ljava/lang/String;)V", false);
+                    }
                 }
             }
         };
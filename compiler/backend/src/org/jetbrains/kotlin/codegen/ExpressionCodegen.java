@@ -48,6 +48,7 @@ import org.jetbrains.kotlin.codegen.signature.BothSignatureWriter;
 import org.jetbrains.kotlin.codegen.signature.JvmSignatureWriter;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper;
+import org.jetbrains.kotlin.codegen.when.SealedClassSwitchCodegen;
 import org.jetbrains.kotlin.codegen.when.SwitchCodegen;
 import org.jetbrains.kotlin.codegen.when.SwitchCodegenUtil;
 import org.jetbrains.kotlin.coroutines.CoroutineUtilKt;
@@ -632,22 +633,58 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     private AbstractForLoopGenerator createOptimizedForLoopGeneratorOrNull(
             @NotNull KtForExpression forExpression,
             @NotNull ResolvedCall<? extends CallableDescriptor> loopRangeCall
+    ) {
+        if (RangeCodegenUtil.isPrimitiveProgressionReversed(loopRangeCall.getResultingDescriptor())) {
+            ResolvedCall<? extends CallableDescriptor> reversedRangeCall =
+                    RangeCodegenUtil.getReceiverRangeResolvedCall(loopRangeCall, bindingContext);
+            if (reversedRangeCall == null) return null;
+            return createOptimizedForLoopGeneratorOrNull(forExpression, reversedRangeCall, true);
+        }
+
+        if (RangeCodegenUtil.isPrimitiveProgressionStep(loopRangeCall.getResultingDescriptor())) {
+            ResolvedCall<? extends CallableDescriptor> steppedRangeCall =
+                    RangeCodegenUtil.getReceiverRangeResolvedCall(loopRangeCall, bindingContext);
+            if (steppedRangeCall == null) return null;
+            CallableDescriptor steppedRangeCallee = steppedRangeCall.getResultingDescriptor();
+            if (RangeCodegenUtil.isPrimitiveNumberRangeTo(steppedRangeCallee) ||
+                RangeCodegenUtil.isPrimitiveNumberDownTo(steppedRangeCallee) ||
+                RangeCodegenUtil.isPrimitiveNumberUntil(steppedRangeCallee)) {
+                return new ForInSteppedRangeLiteralLoopGenerator(forExpression, steppedRangeCall, loopRangeCall);
+            }
+            return null;
+        }
+
+        return createOptimizedForLoopGeneratorOrNull(forExpression, loopRangeCall, false);
+    }
+
+    @Nullable
+    private AbstractForLoopGenerator createOptimizedForLoopGeneratorOrNull(
+            @NotNull KtForExpression forExpression,
+            @NotNull ResolvedCall<? extends CallableDescriptor> loopRangeCall,
+            boolean reversed
     ) {
         CallableDescriptor loopRangeCallee = loopRangeCall.getResultingDescriptor();
-        if (RangeCodegenUtil.isPrimitiveNumberRangeTo(loopRangeCallee)) {
-            return new ForInRangeLiteralLoopGenerator(forExpression, loopRangeCall);
+        if (RangeCodegenUtil.isArrayOrPrimitiveArrayWithIndex(loopRangeCallee)) {
+            if (reversed || !RangeCodegenUtil.isDestructuredIntoIndexedValueComponents(forExpression, bindingContext)) return null;
+            return new ForInArrayWithIndexLoopGenerator(forExpression, loopRangeCall);
+        }
+        else if (RangeCodegenUtil.isPrimitiveNumberRangeTo(loopRangeCallee)) {
+            return new ForInRangeLiteralLoopGenerator(forExpression, loopRangeCall, reversed);
         }
         else if (RangeCodegenUtil.isPrimitiveNumberDownTo(loopRangeCallee)) {
-            return new ForInDownToProgressionLoopGenerator(forExpression, loopRangeCall);
+            return new ForInDownToProgressionLoopGenerator(forExpression, loopRangeCall, reversed);
+        }
+        else if (RangeCodegenUtil.isPrimitiveNumberUntil(loopRangeCallee)) {
+            return new ForInUntilRangeLoopGenerator(forExpression, loopRangeCall, reversed);
         }
         else if (RangeCodegenUtil.isArrayOrPrimitiveArrayIndices(loopRangeCallee)) {
-            return new ForInArrayIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInArrayIndicesRangeLoopGenerator(forExpression, loopRangeCall, reversed);
         }
         else if (RangeCodegenUtil.isCollectionIndices(loopRangeCallee)) {
-            return new ForInCollectionIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInCollectionIndicesRangeLoopGenerator(forExpression, loopRangeCall, reversed);
         }
         else if (RangeCodegenUtil.isCharSequenceIndices(loopRangeCallee)) {
-            return new ForInCharSequenceIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInCharSequenceIndicesRangeLoopGenerator(forExpression, loopRangeCall, reversed);
         }
 
         return null;
@@ -793,14 +830,19 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
                 ResolvedCall<FunctionDescriptor> resolvedCall = bindingContext.get(COMPONENT_RESOLVED_CALL, variableDeclaration);
                 assert resolvedCall != null : "Resolved call is null for " + variableDeclaration.getText();
-                Call call = makeFakeCall(new TransientReceiver(elementType));
 
-                StackValue value = invokeFunction(call, resolvedCall, StackValue.local(loopParameterVar, asmElementType));
+                StackValue value = generateComponent(resolvedCall);
                 StackValue.local(componentVarIndex, componentAsmType).store(value, v);
                 v.visitLabel(variableStartLabel);
             }
         }
 
+        @NotNull
+        protected StackValue generateComponent(@NotNull ResolvedCall<FunctionDescriptor> componentCall) {
+            Call call = makeFakeCall(new TransientReceiver(elementType));
+            return invokeFunction(call, componentCall, StackValue.local(loopParameterVar, asmElementType));
+        }
+
         protected abstract void assignToLoopParameter();
 
         protected abstract void increment(@NotNull Label loopExit);
@@ -1000,6 +1042,71 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         }
     }
 
+    /**
+     * <code>for ((index, value) in array.withIndex())</code>: components of IndexedValue are taken from the array directly
+     */
+    private class ForInArrayWithIndexLoopGenerator extends AbstractForLoopGenerator {
+        private final ReceiverValue arrayReceiver;
+        private final Type asmArrayType;
+        private int indexVar;
+        private int arrayVar;
+
+        private ForInArrayWithIndexLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
+            super(forExpression);
+            this.arrayReceiver = loopRangeCall.getExtensionReceiver();
+            this.asmArrayType = asmType(getExpectedReceiverType(loopRangeCall));
+        }
+
+        @Override
+        public void beforeLoop() {
+            super.beforeLoop();
+
+            indexVar = createLoopTempVariable(Type.INT_TYPE);
+            arrayVar = createLoopTempVariable(OBJECT_TYPE);
+
+            generateReceiverValue(arrayReceiver, false).put(asmArrayType, v);
+            v.store(arrayVar, OBJECT_TYPE);
+
+            v.iconst(0);
+            v.store(indexVar, Type.INT_TYPE);
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+        }
+
+        @Override
+        public void checkPreCondition(@NotNull Label loopExit) {
+            v.load(indexVar, Type.INT_TYPE);
+            v.load(arrayVar, OBJECT_TYPE);
+            v.arraylength();
+            v.ificmpge(loopExit);
+        }
+
+        @Override
+        protected void assignToLoopParameter() {
+        }
+
+        @NotNull
+        @Override
+        protected StackValue generateComponent(@NotNull ResolvedCall<FunctionDescriptor> componentCall) {
+            if (RangeCodegenUtil.isIndexedValueIndexComponent(componentCall.getResultingDescriptor())) {
+                return StackValue.local(indexVar, Type.INT_TYPE);
+            }
+
+            Type arrayElementType = correctElementType(asmArrayType);
+            v.load(arrayVar, OBJECT_TYPE);
+            v.load(indexVar, Type.INT_TYPE);
+            v.aload(arrayElementType);
+            return StackValue.onStack(arrayElementType);
+        }
+
+        @Override
+        protected void increment(@NotNull Label loopExit) {
+            v.iinc(indexVar, 1);
+        }
+    }
+
     private abstract class AbstractForInProgressionOrRangeLoopGenerator extends AbstractForLoopGenerator {
         protected int endVar;
 
@@ -1057,13 +1164,20 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
     private abstract class AbstractForInRangeLoopGenerator extends AbstractForInProgressionOrRangeLoopGenerator {
         private final int step;
+        // true if the range is iterated via reversed(), i.e. from its end to its start
+        private final boolean reversed;
 
-        private AbstractForInRangeLoopGenerator(@NotNull KtForExpression forExpression, int step) {
+        private AbstractForInRangeLoopGenerator(@NotNull KtForExpression forExpression, int step, boolean reversed) {
             super(forExpression);
-            this.step = step;
+            this.step = reversed ? -step : step;
+            this.reversed = reversed;
             assert step == 1 || step == -1 : "'step' should be either 1 or -1: " + step;
         }
 
+        private AbstractForInRangeLoopGenerator(@NotNull KtForExpression forExpression, int step) {
+            this(forExpression, step, false);
+        }
+
         private AbstractForInRangeLoopGenerator(@NotNull KtForExpression forExpression) {
             this(forExpression, 1);
         }
@@ -1077,6 +1191,19 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
         protected abstract void storeRangeStartAndEnd();
 
+        /**
+         * The first value of the range as written in the code, i.e. the last value of the loop if the range is reversed
+         */
+        @NotNull
+        protected StackValue rangeStart() {
+            return reversed ? StackValue.local(endVar, asmElementType) : loopParameter();
+        }
+
+        @NotNull
+        protected StackValue rangeEnd() {
+            return reversed ? loopParameter() : StackValue.local(endVar, asmElementType);
+        }
+
         @Override
         public void checkEmptyLoop(@NotNull Label loopExit) {
             loopParameter().put(asmElementType, v);
@@ -1124,16 +1251,20 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         private final ReceiverValue from;
         private final KtExpression to;
 
-        private ForInRangeLiteralLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression);
+        private ForInRangeLiteralLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, 1, reversed);
             this.from = loopRangeCall.getDispatchReceiver();
             this.to = getSingleArgumentExpression(loopRangeCall);
         }
 
         @Override
         protected void storeRangeStartAndEnd() {
-            loopParameter().store(generateReceiverValue(from, false), v);
-            StackValue.local(endVar, asmElementType).store(gen(to), v);
+            rangeStart().store(generateReceiverValue(from, false), v);
+            rangeEnd().store(gen(to), v);
         }
     }
 
@@ -1141,16 +1272,61 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         private final ReceiverValue from;
         private final KtExpression to;
 
-        private ForInDownToProgressionLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, -1);
+        private ForInDownToProgressionLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, -1, reversed);
             this.from = loopRangeCall.getExtensionReceiver();
             this.to = getSingleArgumentExpression(loopRangeCall);
         }
 
         @Override
         protected void storeRangeStartAndEnd() {
-            loopParameter().store(generateReceiverValue(from, false), v);
-            StackValue.local(endVar, asmElementType).store(gen(to), v);
+            rangeStart().store(generateReceiverValue(from, false), v);
+            rangeEnd().store(gen(to), v);
+        }
+    }
+
+    private class ForInUntilRangeLoopGenerator extends AbstractForInRangeLoopGenerator {
+        private final ReceiverValue from;
+        private final KtExpression to;
+
+        private ForInUntilRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, 1, reversed);
+            this.from = loopRangeCall.getExtensionReceiver();
+            this.to = getSingleArgumentExpression(loopRangeCall);
+        }
+
+        @Override
+        protected void storeRangeStartAndEnd() {
+            rangeStart().store(generateReceiverValue(from, false), v);
+            rangeEnd().store(gen(to), v);
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            StackValue rangeEnd = rangeEnd();
+
+            rangeStart().put(asmElementType, v);
+            rangeEnd.put(asmElementType, v);
+            if (asmElementType.getSort() == Type.LONG) {
+                v.lcmp();
+                v.ifge(loopExit);
+            }
+            else {
+                v.ificmpge(loopExit);
+            }
+
+            // The range is not empty, so its exclusive end can be made inclusive without an overflow
+            rangeEnd.put(asmElementType, v);
+            genIncrement(asmElementType, -1, v);
+            rangeEnd.store(StackValue.onStack(asmElementType), v);
         }
     }
 
@@ -1177,15 +1353,19 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         protected final ReceiverValue receiverValue;
         protected final KotlinType expectedReceiverType;
 
-        private ForInOptimizedIndicesLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression);
+        private ForInOptimizedIndicesLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, 1, reversed);
             this.receiverValue = loopRangeCall.getExtensionReceiver();
             this.expectedReceiverType = getExpectedReceiverType(loopRangeCall);
         }
 
         @Override
         protected void storeRangeStartAndEnd() {
-            loopParameter().store(StackValue.constant(0, asmElementType), v);
+            rangeStart().store(StackValue.constant(0, asmElementType), v);
 
             StackValue receiver = generateReceiverValue(receiverValue, false);
             Type receiverType = asmType(expectedReceiverType);
@@ -1193,7 +1373,7 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
             getReceiverSizeAsInt();
             v.iconst(1);
             v.sub(Type.INT_TYPE);
-            StackValue.local(endVar, asmElementType).store(StackValue.onStack(Type.INT_TYPE), v);
+            rangeEnd().store(StackValue.onStack(Type.INT_TYPE), v);
         }
 
         /**
@@ -1203,8 +1383,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInCollectionIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInCollectionIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInCollectionIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, loopRangeCall, reversed);
         }
 
         @Override
@@ -1214,8 +1398,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInArrayIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInArrayIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInArrayIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, loopRangeCall, reversed);
         }
 
         @Override
@@ -1225,8 +1413,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInCharSequenceIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInCharSequenceIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInCharSequenceIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> loopRangeCall,
+                boolean reversed
+        ) {
+            super(forExpression, loopRangeCall, reversed);
         }
 
         @Override
@@ -1236,8 +1428,8 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInProgressionExpressionLoopGenerator extends AbstractForInProgressionOrRangeLoopGenerator {
-        private int incrementVar;
-        private Type incrementType;
+        protected int incrementVar;
+        protected Type incrementType;
 
         private ForInProgressionExpressionLoopGenerator(@NotNull KtForExpression forExpression) {
             super(forExpression);
@@ -1249,6 +1441,10 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
             incrementVar = createLoopTempVariable(asmElementType);
 
+            storeFirstLastAndStep();
+        }
+
+        protected void storeFirstLastAndStep() {
             KotlinType loopRangeType = bindingContext.getType(forExpression.getLoopRange());
             assert loopRangeType != null;
             Type asmLoopRangeType = asmType(loopRangeType);
@@ -1327,6 +1523,104 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         }
     }
 
+    /**
+     * <code>for (i in a..b step c)</code>, as well as <code>downTo</code> and <code>until</code> with a step: neither the range
+     * nor the progression is created, the last element is computed by the same runtime function as in progression constructors
+     */
+    private class ForInSteppedRangeLiteralLoopGenerator extends ForInProgressionExpressionLoopGenerator {
+        private final ReceiverValue from;
+        private final KtExpression to;
+        private final KtExpression step;
+        private final boolean isDownTo;
+        private final boolean isUntil;
+
+        private ForInSteppedRangeLiteralLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> rangeCall,
+                @NotNull ResolvedCall<?> stepCall
+        ) {
+            super(forExpression);
+            CallableDescriptor rangeCallee = rangeCall.getResultingDescriptor();
+            this.isDownTo = RangeCodegenUtil.isPrimitiveNumberDownTo(rangeCallee);
+            this.isUntil = RangeCodegenUtil.isPrimitiveNumberUntil(rangeCallee);
+            // rangeTo is a member of primitive classes, while downTo and until are extensions
+            this.from = isDownTo || isUntil ? rangeCall.getExtensionReceiver() : rangeCall.getDispatchReceiver();
+            this.to = getSingleArgumentExpression(rangeCall);
+            this.step = getSingleArgumentExpression(stepCall);
+        }
+
+        @Override
+        protected void storeFirstLastAndStep() {
+            // Steps of char progressions are ints
+            incrementType = asmElementType.getSort() == Type.LONG ? Type.LONG_TYPE : Type.INT_TYPE;
+
+            loopParameter().store(generateReceiverValue(from, false), v);
+            StackValue.local(endVar, asmElementType).store(gen(to), v);
+            StackValue increment = StackValue.local(incrementVar, incrementType);
+            increment.store(gen(step), v);
+
+            // The same check and message as in the 'step' function
+            Label stepIsPositive = new Label();
+            increment.put(incrementType, v);
+            if (incrementType == Type.LONG_TYPE) {
+                v.lconst(0L);
+                v.lcmp();
+            }
+            v.ifgt(stepIsPositive);
+            v.anew(Type.getObjectType("java/lang/IllegalArgumentException"));
+            v.dup();
+            genStringBuilderConstructor(v);
+            v.aconst("Step must be positive, was: ");
+            genInvokeAppendMethod(v, JAVA_STRING_TYPE);
+            increment.put(incrementType, v);
+            genInvokeAppendMethod(v, incrementType);
+            v.aconst(".");
+            genInvokeAppendMethod(v, JAVA_STRING_TYPE);
+            v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+            v.invokespecial("java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+            v.athrow();
+            v.mark(stepIsPositive);
+
+            if (isDownTo) {
+                increment.put(incrementType, v);
+                v.neg(incrementType);
+                increment.store(StackValue.onStack(incrementType), v);
+            }
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            StackValue end = StackValue.local(endVar, asmElementType);
+
+            if (isUntil) {
+                // The range is empty if its start is not less than its exclusive end, otherwise the end can be made inclusive
+                // without an overflow
+                loopParameter().put(asmElementType, v);
+                end.put(asmElementType, v);
+                if (asmElementType.getSort() == Type.LONG) {
+                    v.lcmp();
+                    v.ifge(loopExit);
+                }
+                else {
+                    v.ificmpge(loopExit);
+                }
+
+                end.put(asmElementType, v);
+                genIncrement(asmElementType, -1, v);
+                end.store(StackValue.onStack(asmElementType), v);
+            }
+
+            loopParameter().put(incrementType, v);
+            end.put(incrementType, v);
+            v.load(incrementVar, incrementType);
+            String descriptor = incrementType == Type.LONG_TYPE ? "(JJJ)J" : "(III)I";
+            v.invokestatic("kotlin/internal/ProgressionUtilKt", "getProgressionLastElement", descriptor, false);
+            end.store(StackValue.onStack(incrementType), v);
+
+            super.checkEmptyLoop(loopExit);
+        }
+    }
+
 
     @Override
     public StackValue visitBreakExpression(@NotNull KtBreakExpression expression, StackValue receiver) {
@@ -1519,20 +1813,20 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
             return StackValue.operation(JAVA_STRING_TYPE, new Function1<InstructionAdapter, Unit>() {
                 @Override
                 public Unit invoke(InstructionAdapter v) {
-                    genStringBuilderConstructor(v);
+                    StringConcatGenerator generator = StringConcatGenerator.create(state, v);
+                    generator.genStringBuilderConstructor();
                     for (KtStringTemplateEntry entry : entries) {
                         if (entry instanceof KtStringTemplateEntryWithExpression) {
-                            invokeAppend(entry.getExpression());
+                            invokeAppend(generator, entry.getExpression());
                         }
                         else {
                             String text = entry instanceof KtEscapeStringTemplateEntry
                                           ? ((KtEscapeStringTemplateEntry) entry).getUnescapedValue()
                                           : entry.getText();
-                            v.aconst(text);
-                            genInvokeAppendMethod(v, JAVA_STRING_TYPE);
+                            generator.appendConstant(text);
                         }
                     }
-                    v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+                    generator.genToString();
                     return Unit.INSTANCE;
                 }
             });
@@ -2669,6 +2963,35 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         return invokeFunction(resolvedCall, receiver);
     }
 
+    @Nullable
+    private StackValue genSamLambdaViaLambdaMetafactory(@NotNull KtDeclarationWithBody declaration, @NotNull SamType samType) {
+        if (!state.getUseLambdaMetafactory()) return null;
+
+        FunctionDescriptor descriptor = bindingContext.get(FUNCTION, declaration);
+        assert descriptor != null : "Function is not resolved to descriptor: " + declaration.getText();
+
+        final SamLambdaMetafactory lambdaMetafactory = new SamLambdaMetafactory(samType, typeMapper);
+        if (!lambdaMetafactory.isApplicable() ||
+            !lambdaMetafactory.isApplicableToLambda(typeMapper.mapAsmMethod(descriptor)) ||
+            !SamLambdaMethodCodegen.isApplicable(this, declaration, descriptor)) {
+            return null;
+        }
+
+        final Method implementation = new SamLambdaMethodCodegen(this, declaration, descriptor).generate();
+        final ClassDescriptor closureClass = bindingContext.get(CLASS_FOR_CALLABLE, descriptor);
+        assert closureClass != null : "No class for lambda: " + descriptor;
+        final Type implementationOwner = Type.getObjectType(parentCodegen.getClassName());
+
+        return StackValue.operation(typeMapper.mapType(samType.getType()), new Function1<InstructionAdapter, Unit>() {
+            @Override
+            public Unit invoke(InstructionAdapter v) {
+                pushClosureOnStack(closureClass, true, defaultCallGenerator, /* functionReferenceReceiver = */ null);
+                lambdaMetafactory.genLambdaSamValue(v, implementationOwner, implementation);
+                return Unit.INSTANCE;
+            }
+        });
+    }
+
     @Nullable
     private StackValue genSamInterfaceValue(
             @NotNull KtExpression probablyParenthesizedExpression,
@@ -2678,12 +3001,27 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         final SamType samType = bindingContext.get(SAM_VALUE, probablyParenthesizedExpression);
         if (samType == null || expression == null) return null;
 
-        if (expression instanceof KtLambdaExpression) {
-            return genClosure(((KtLambdaExpression) expression).getFunctionLiteral(), samType);
+        if (expression instanceof KtLambdaExpression || expression instanceof KtNamedFunction) {
+            KtDeclarationWithBody declaration = expression instanceof KtLambdaExpression
+                                                ? ((KtLambdaExpression) expression).getFunctionLiteral()
+                                                : (KtNamedFunction) expression;
+            StackValue lambdaValue = genSamLambdaViaLambdaMetafactory(declaration, samType);
+            return lambdaValue != null ? lambdaValue : genClosure(declaration, samType);
         }
 
-        if (expression instanceof KtNamedFunction) {
-            return genClosure((KtNamedFunction) expression, samType);
+        if (state.getUseLambdaMetafactory()) {
+            final SamLambdaMetafactory lambdaMetafactory = new SamLambdaMetafactory(samType, typeMapper);
+            if (lambdaMetafactory.isApplicable()) {
+                return StackValue.operation(typeMapper.mapType(samType.getType()), new Function1<InstructionAdapter, Unit>() {
+                    @Override
+                    public Unit invoke(InstructionAdapter v) {
+                        Type functionType = typeMapper.mapType(samType.getKotlinFunctionType());
+                        expression.accept(visitor, StackValue.none()).put(functionType, v);
+                        lambdaMetafactory.genSamValue(v);
+                        return null;
+                    }
+                });
+            }
         }
 
         final Type asmType =
@@ -3696,7 +4034,7 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         }
     }
 
-    public void invokeAppend(KtExpression expr) {
+    public void invokeAppend(@NotNull StringConcatGenerator generator, @NotNull KtExpression expr) {
         ConstantValue<?> compileTimeConstant = getPrimitiveOrStringCompileTimeConstant(expr, bindingContext);
 
         if (compileTimeConstant == null && expr instanceof KtBinaryExpression) {
@@ -3707,8 +4045,8 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
                 Type leftType = expressionType(left);
 
                 if (leftType.equals(JAVA_STRING_TYPE)) {
-                    invokeAppend(left);
-                    invokeAppend(right);
+                    invokeAppend(generator, left);
+                    invokeAppend(generator, right);
                     return;
                 }
             }
@@ -3716,11 +4054,15 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
         Type exprType = expressionType(expr);
         if (compileTimeConstant != null) {
-            StackValue.constant(compileTimeConstant.getValue(), exprType).put(exprType, v);
+            if (generator.getUseInvokeDynamic()) {
+                generator.appendConstant(String.valueOf(compileTimeConstant.getValue()));
+            }
+            else {
+                generator.append(StackValue.constant(compileTimeConstant.getValue(), exprType), exprType);
+            }
         } else {
-            gen(expr, exprType);
+            generator.append(gen(expr), exprType);
         }
-        genInvokeAppendMethod(v, exprType.getSort() == Type.ARRAY ? OBJECT_TYPE : exprType);
     }
 
     @Nullable
@@ -4476,14 +4818,30 @@ The "returned" value of try expression with no finally is either the last expres
                 Label end = new Label();
                 boolean hasElse = KtPsiUtil.checkWhenExpressionHasSingleElse(expression);
 
+                List<Label> entryLabels = new ArrayList<Label>();
+                for (KtWhenEntry ignored : expression.getEntries()) {
+                    entryLabels.add(new Label());
+                }
+                Label noMatch = new Label();
+
+                SealedClassSwitchCodegen sealedClassSwitch =
+                        subjectLocal != -1 ? SealedClassSwitchCodegen.createIfApplicable(expression, ExpressionCodegen.this) : null;
+                if (sealedClassSwitch != null) {
+                    Label firstCondition = new Label();
+                    sealedClassSwitch.generate(subjectLocal, subjectType, entryLabels,
+                                               hasElse ? CollectionsKt.last(entryLabels) : noMatch, firstCondition, v);
+                    v.mark(firstCondition);
+                }
+
                 Label nextCondition = null;
+                int entryIndex = 0;
                 for (KtWhenEntry whenEntry : expression.getEntries()) {
                     if (nextCondition != null) {
                         v.mark(nextCondition);
                     }
                     nextCondition = new Label();
                     FrameMap.Mark mark = myFrameMap.mark();
-                    Label thisEntry = new Label();
+                    Label thisEntry = entryLabels.get(entryIndex++);
                     if (!whenEntry.isElse()) {
                         KtWhenCondition[] conditions = whenEntry.getConditions();
                         for (int i = 0; i < conditions.length; i++) {
@@ -4506,6 +4864,7 @@ The "returned" value of try expression with no finally is either the last expres
                 }
                 if (!hasElse && nextCondition != null) {
                     v.mark(nextCondition);
+                    v.mark(noMatch);
                     putUnitInstanceOntoStackForNonExhaustiveWhen(expression, isStatement);
                 }
 
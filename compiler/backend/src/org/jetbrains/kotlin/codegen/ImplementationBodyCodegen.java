@@ -36,6 +36,7 @@ import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil;
 import org.jetbrains.kotlin.codegen.signature.BothSignatureWriter;
 import org.jetbrains.kotlin.codegen.signature.JvmSignatureWriter;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
+import org.jetbrains.kotlin.codegen.when.SealedClassHierarchies;
 import org.jetbrains.kotlin.descriptors.*;
 import org.jetbrains.kotlin.incremental.components.NoLookupLocation;
 import org.jetbrains.kotlin.lexer.KtTokens;
@@ -372,6 +373,8 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
 
         generateToArray();
 
+        generateSealedClassTag();
+
         genClosureFields(context.closure, v, typeMapper);
 
         for (ExpressionCodegenExtension extension : ExpressionCodegenExtension.Companion.getInstances(state.getProject())) {
@@ -789,6 +792,28 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
         return constructor;
     }
 
+    private void generateSealedClassTag() {
+        SealedClassHierarchies hierarchies = state.getSealedClassHierarchies();
+        if (hierarchies == null || kind != OwnerKind.IMPLEMENTATION) return;
+
+        SealedClassHierarchies.Hierarchy hierarchy = hierarchies.getHierarchy(descriptor);
+        if (hierarchy == null) return;
+
+        if (hierarchy.getRoot() == descriptor) {
+            v.newField(JvmDeclarationOriginKt.OtherOrigin(myClass), ACC_PUBLIC | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC,
+                       SealedClassHierarchies.HASH_FIELD, Type.INT_TYPE.getDescriptor(), null, hierarchy.getHash());
+        }
+
+        MethodVisitor mv = v.newMethod(JvmDeclarationOriginKt.OtherOrigin(myClass), ACC_PUBLIC | ACC_SYNTHETIC,
+                                       SealedClassHierarchies.TAG_METHOD, "()I", null, null);
+        if (!state.getClassBuilderMode().generateBodies) return;
+
+        mv.visitCode();
+        new InstructionAdapter(mv).iconst(hierarchy.getTag(descriptor));
+        mv.visitInsn(IRETURN);
+        FunctionCodegen.endVisit(mv, "sealed class tag", myClass);
+    }
+
     private void generateEnumMethods() {
         if (isEnumClass(descriptor)) {
             generateEnumValuesMethod();
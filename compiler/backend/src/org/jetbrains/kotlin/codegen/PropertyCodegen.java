@@ -22,7 +22,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.annotation.AnnotatedSimple;
 import org.jetbrains.kotlin.codegen.annotation.AnnotatedWithFakeAnnotations;
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding;
 import org.jetbrains.kotlin.codegen.context.*;
+import org.jetbrains.kotlin.codegen.inline.InlineCodegen;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper;
 import org.jetbrains.kotlin.descriptors.*;
@@ -33,7 +35,6 @@ import org.jetbrains.kotlin.descriptors.annotations.Annotations;
 import org.jetbrains.kotlin.fileClasses.JvmFileClassUtilKt;
 import org.jetbrains.kotlin.load.java.JvmAbi;
 import org.jetbrains.kotlin.psi.*;
-import org.jetbrains.kotlin.psi.psiUtil.PsiUtilsKt;
 import org.jetbrains.kotlin.resolve.BindingContext;
 import org.jetbrains.kotlin.resolve.DescriptorFactory;
 import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils;
@@ -54,6 +55,7 @@ import org.jetbrains.org.objectweb.asm.Type;
 import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter;
 import org.jetbrains.org.objectweb.asm.commons.Method;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.jetbrains.kotlin.codegen.AsmUtil.getDeprecatedAccessFlag;
@@ -427,7 +429,7 @@ public class PropertyCodegen {
         FunctionGenerationStrategy strategy;
         if (accessor == null || !accessor.hasBody()) {
             if (p instanceof KtProperty && ((KtProperty) p).hasDelegate()) {
-                strategy = new DelegatedPropertyAccessorStrategy(state, accessorDescriptor, indexOfDelegatedProperty((KtProperty) p));
+                strategy = new DelegatedPropertyAccessorStrategy(state, accessorDescriptor, indexOfDelegatedProperty((KtProperty) p, state));
             }
             else {
                 strategy = new DefaultPropertyAccessorStrategy(state, accessorDescriptor);
@@ -440,7 +442,63 @@ public class PropertyCodegen {
         functionCodegen.generateMethod(JvmDeclarationOriginKt.OtherOrigin(accessor != null ? accessor : p, accessorDescriptor), accessorDescriptor, strategy);
     }
 
-    public static int indexOfDelegatedProperty(@NotNull KtProperty property) {
+    /**
+     * @return index of the property's metadata in the {@link JvmAbi#DELEGATED_PROPERTIES_ARRAY_NAME} array,
+     * or -1 if the metadata is not used by the delegate and is not generated
+     */
+    public static int indexOfDelegatedProperty(@NotNull KtProperty property, @NotNull GenerationState state) {
+        return getDelegatedPropertiesWithMetadata(getDelegatedPropertyContainer(property), state).indexOf(property);
+    }
+
+    /**
+     * Delegated properties of the container, whose metadata (KProperty instances) is stored in the
+     * {@link JvmAbi#DELEGATED_PROPERTIES_ARRAY_NAME} array initialized in the static initializer of the container.
+     * The metadata is omitted for the properties whose delegates are compiled inline functions ignoring the property parameter,
+     * such as {@code Lazy.getValue}: {@code null} is passed to them instead.
+     */
+    @NotNull
+    public static List<KtProperty> getDelegatedPropertiesWithMetadata(
+            @NotNull KtDeclarationContainer container,
+            @NotNull GenerationState state
+    ) {
+        List<KtProperty> result = state.getBindingContext().get(CodegenBinding.DELEGATED_PROPERTIES_WITH_METADATA, container);
+        if (result != null) return result;
+
+        result = new ArrayList<KtProperty>();
+        for (KtDeclaration declaration : container.getDeclarations()) {
+            if (declaration instanceof KtProperty && ((KtProperty) declaration).hasDelegate()) {
+                KtProperty property = (KtProperty) declaration;
+                if (isPropertyMetadataUsedByDelegate(property, state)) {
+                    result.add(property);
+                }
+            }
+        }
+
+        state.getBindingTrace().record(CodegenBinding.DELEGATED_PROPERTIES_WITH_METADATA, container, result);
+        return result;
+    }
+
+    private static boolean isPropertyMetadataUsedByDelegate(@NotNull KtProperty property, @NotNull GenerationState state) {
+        // Light classes don't need bodies of inline functions to be loaded
+        if (!state.getClassBuilderMode().generateBodies) return true;
+
+        BindingContext bindingContext = state.getBindingContext();
+        PropertyDescriptor descriptor = (PropertyDescriptor) bindingContext.get(BindingContext.VARIABLE, property);
+        if (descriptor == null) return true;
+
+        for (PropertyAccessorDescriptor accessor : descriptor.getAccessors()) {
+            ResolvedCall<FunctionDescriptor> resolvedCall = bindingContext.get(BindingContext.DELEGATED_PROPERTY_RESOLVED_CALL, accessor);
+            if (resolvedCall == null ||
+                !InlineCodegen.isValueParameterUnusedInCompiledBody(resolvedCall.getResultingDescriptor(), 1, state)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @NotNull
+    private static KtDeclarationContainer getDelegatedPropertyContainer(@NotNull KtProperty property) {
         PsiElement parent = property.getParent();
         KtDeclarationContainer container;
         if (parent instanceof KtClassBody) {
@@ -456,18 +514,7 @@ public class PropertyCodegen {
         else {
             throw new UnsupportedOperationException("Unknown delegated property container: " + parent);
         }
-
-        int index = 0;
-        for (KtDeclaration declaration : container.getDeclarations()) {
-            if (declaration instanceof KtProperty && ((KtProperty) declaration).hasDelegate()) {
-                if (declaration == property) {
-                    return index;
-                }
-                index++;
-            }
-        }
-
-        throw new IllegalStateException("Delegated property not found in its parent: " + PsiUtilsKt.getElementTextWithContext(property));
+        return container;
     }
 
 
@@ -532,20 +579,24 @@ public class PropertyCodegen {
             throw new UnsupportedOperationException("Unknown context: " + ownerContext);
         }
 
-        codegen.tempVariables.put(
-                resolvedCall.getCall().getValueArguments().get(propertyMetadataArgumentIndex).asElement(),
-                new StackValue(K_PROPERTY_TYPE) {
-                    @Override
-                    public void putSelector(@NotNull Type type, @NotNull InstructionAdapter v) {
-                        Field array = StackValue.field(
-                                Type.getType("[" + K_PROPERTY_TYPE), owner, JvmAbi.DELEGATED_PROPERTIES_ARRAY_NAME, true, StackValue.none()
-                        );
-                        StackValue.arrayElement(
-                                K_PROPERTY_TYPE, array, StackValue.constant(indexInPropertyMetadataArray, Type.INT_TYPE)
-                        ).put(type, v);
-                    }
+        StackValue metadata;
+        if (indexInPropertyMetadataArray < 0) {
+            metadata = StackValue.constant(null, K_PROPERTY_TYPE);
+        }
+        else {
+            metadata = new StackValue(K_PROPERTY_TYPE) {
+                @Override
+                public void putSelector(@NotNull Type type, @NotNull InstructionAdapter v) {
+                    Field array = StackValue.field(
+                            Type.getType("[" + K_PROPERTY_TYPE), owner, JvmAbi.DELEGATED_PROPERTIES_ARRAY_NAME, true, StackValue.none()
+                    );
+                    StackValue.arrayElement(
+                            K_PROPERTY_TYPE, array, StackValue.constant(indexInPropertyMetadataArray, Type.INT_TYPE)
+                    ).put(type, v);
                 }
-        );
+            };
+        }
+        codegen.tempVariables.put(resolvedCall.getCall().getValueArguments().get(propertyMetadataArgumentIndex).asElement(), metadata);
 
         StackValue delegatedProperty = codegen.intermediateValueForProperty(propertyDescriptor, true, null, StackValue.LOCAL_0);
         return codegen.invokeFunction(resolvedCall, delegatedProperty);
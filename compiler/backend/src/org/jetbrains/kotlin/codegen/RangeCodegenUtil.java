@@ -44,6 +44,8 @@ import static org.jetbrains.kotlin.builtins.KotlinBuiltIns.RANGES_PACKAGE_FQ_NAM
 import static org.jetbrains.kotlin.codegen.AsmUtil.isPrimitiveNumberClassDescriptor;
 
 public class RangeCodegenUtil {
+    private static final FqNameUnsafe INDEXED_VALUE_FQ_NAME = new FqNameUnsafe("kotlin.collections.IndexedValue");
+
     private static final ImmutableMap<FqName, PrimitiveType> RANGE_TO_ELEMENT_TYPE;
     private static final ImmutableMap<FqName, PrimitiveType> PROGRESSION_TO_ELEMENT_TYPE;
 
@@ -77,7 +79,25 @@ public class RangeCodegenUtil {
 
     @Nullable
     public static ResolvedCall<? extends CallableDescriptor> getLoopRangeResolvedCall(@NotNull KtForExpression forExpression, @NotNull BindingContext bindingContext) {
-        KtExpression loopRange = KtPsiUtil.deparenthesize(forExpression.getLoopRange());
+        return getRangeResolvedCall(forExpression.getLoopRange(), bindingContext);
+    }
+
+    /**
+     * For <code>(range).reversed()</code> or <code>(range) step c</code>, returns the resolved call which creates the receiver range.
+     */
+    @Nullable
+    public static ResolvedCall<? extends CallableDescriptor> getReceiverRangeResolvedCall(
+            @NotNull ResolvedCall<? extends CallableDescriptor> progressionCall,
+            @NotNull BindingContext bindingContext
+    ) {
+        ReceiverValue receiver = progressionCall.getExtensionReceiver();
+        if (!(receiver instanceof ExpressionReceiver)) return null;
+        return getRangeResolvedCall(((ExpressionReceiver) receiver).getExpression(), bindingContext);
+    }
+
+    @Nullable
+    private static ResolvedCall<? extends CallableDescriptor> getRangeResolvedCall(@Nullable KtExpression expression, @NotNull BindingContext bindingContext) {
+        KtExpression loopRange = KtPsiUtil.deparenthesize(expression);
 
         if (loopRange instanceof KtQualifiedExpression) {
             KtQualifiedExpression qualifiedExpression = (KtQualifiedExpression) loopRange;
@@ -156,6 +176,37 @@ public class RangeCodegenUtil {
         return true;
     }
 
+    public static boolean isPrimitiveNumberUntil(@NotNull CallableDescriptor descriptor) {
+        if (!isTopLevelInPackage(descriptor, "until", "kotlin.ranges")) return false;
+
+        ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
+        if (extensionReceiver == null) return false;
+        ClassifierDescriptor extensionReceiverClassifier = extensionReceiver.getType().getConstructor().getDeclarationDescriptor();
+        if (!isPrimitiveNumberClassDescriptor(extensionReceiverClassifier)) return false;
+
+        return true;
+    }
+
+    public static boolean isPrimitiveProgressionReversed(@NotNull CallableDescriptor descriptor) {
+        if (!isTopLevelInPackage(descriptor, "reversed", "kotlin.ranges")) return false;
+
+        ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
+        if (extensionReceiver == null) return false;
+        if (getPrimitiveProgressionElementType(extensionReceiver.getType()) == null) return false;
+
+        return true;
+    }
+
+    public static boolean isPrimitiveProgressionStep(@NotNull CallableDescriptor descriptor) {
+        if (!isTopLevelInPackage(descriptor, "step", "kotlin.ranges")) return false;
+
+        ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
+        if (extensionReceiver == null) return false;
+        if (getPrimitiveProgressionElementType(extensionReceiver.getType()) == null) return false;
+
+        return true;
+    }
+
     public static boolean isArrayOrPrimitiveArrayIndices(@NotNull CallableDescriptor descriptor) {
         if (!isTopLevelInPackage(descriptor, "indices", "kotlin.collections")) return false;
 
@@ -167,6 +218,52 @@ public class RangeCodegenUtil {
         return true;
     }
 
+    public static boolean isArrayOrPrimitiveArrayWithIndex(@NotNull CallableDescriptor descriptor) {
+        if (!isTopLevelInPackage(descriptor, "withIndex", "kotlin.collections")) return false;
+
+        ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
+        if (extensionReceiver == null) return false;
+        KotlinType extensionReceiverType = extensionReceiver.getType();
+        if (!KotlinBuiltIns.isArray(extensionReceiverType) && !KotlinBuiltIns.isPrimitiveArray(extensionReceiverType)) return false;
+
+        return true;
+    }
+
+    /**
+     * Returns true if the loop parameter is destructured and only the components of kotlin.collections.IndexedValue are used,
+     * so the IndexedValue instances themselves are never needed.
+     */
+    public static boolean isDestructuredIntoIndexedValueComponents(
+            @NotNull KtForExpression forExpression,
+            @NotNull BindingContext bindingContext
+    ) {
+        KtDestructuringDeclaration destructuringDeclaration = forExpression.getDestructuringDeclaration();
+        if (destructuringDeclaration == null) return false;
+
+        for (KtDestructuringDeclarationEntry entry : destructuringDeclaration.getEntries()) {
+            ResolvedCall<FunctionDescriptor> componentCall = bindingContext.get(BindingContext.COMPONENT_RESOLVED_CALL, entry);
+            if (componentCall == null) return false;
+
+            FunctionDescriptor component = componentCall.getResultingDescriptor();
+            if (!isIndexedValueIndexComponent(component) && !isIndexedValueMember(component, "component2")) return false;
+        }
+
+        return true;
+    }
+
+    public static boolean isIndexedValueIndexComponent(@NotNull CallableDescriptor descriptor) {
+        return isIndexedValueMember(descriptor, "component1");
+    }
+
+    private static boolean isIndexedValueMember(@NotNull CallableDescriptor descriptor, @NotNull String name) {
+        if (!name.equals(descriptor.getName().asString())) return false;
+
+        DeclarationDescriptor containingDeclaration = descriptor.getContainingDeclaration();
+        if (!(containingDeclaration instanceof ClassDescriptor)) return false;
+
+        return INDEXED_VALUE_FQ_NAME.equals(DescriptorUtils.getFqName(containingDeclaration));
+    }
+
     public static boolean isCollectionIndices(@NotNull CallableDescriptor descriptor) {
         if (!isTopLevelInPackage(descriptor, "indices", "kotlin.collections")) return false;
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper
+import org.jetbrains.kotlin.descriptors.ClassifierDescriptor
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes.OBJECT_TYPE
+import org.jetbrains.kotlin.types.TypeUtils
+import org.jetbrains.org.objectweb.asm.Handle
+import org.jetbrains.org.objectweb.asm.Label
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter
+import org.jetbrains.org.objectweb.asm.commons.Method
+
+/**
+ * SAM conversion via `invokedynamic` and `java.lang.invoke.LambdaMetafactory`, which is used when it's enabled for the JVM 1.8 target
+ * instead of a SAM wrapper class (see [SamWrapperCodegen]) for a function value (a `FunctionN` instance),
+ * and instead of a closure class for a lambda literal (see [SamLambdaMethodCodegen]).
+ */
+class SamLambdaMetafactory(private val samType: SamType, private val typeMapper: KotlinTypeMapper) {
+    private val samMethod = samType.abstractMethod.original
+
+    /**
+     * Wrapper classes are still needed for serializable SAM interfaces (LambdaMetafactory instances are not serializable)
+     * and for interfaces whose method requires bridges
+     */
+    fun isApplicable(): Boolean {
+        if (TypeUtils.getAllSupertypes(samType.type).any { isSerializable(it.constructor.declarationDescriptor) }) return false
+
+        val asmMethod = typeMapper.mapAsmMethod(samMethod)
+        return DescriptorUtils.getAllOverriddenDescriptors(samMethod).all { typeMapper.mapAsmMethod(it.original) == asmMethod }
+    }
+
+    /**
+     * LambdaMetafactory casts reference parameters and boxes the return value of the lambda with the given `invoke` method,
+     * but unlike the bridges of a closure class it can't unbox parameters or return `Unit` from a `void` method
+     */
+    fun isApplicableToLambda(invoke: Method): Boolean {
+        val asmMethod = typeMapper.mapAsmMethod(samMethod)
+        val samParameterTypes = asmMethod.argumentTypes
+        val parameterTypes = invoke.argumentTypes
+        if (samParameterTypes.size != parameterTypes.size) return false
+
+        for ((samParameterType, parameterType) in samParameterTypes.zip(parameterTypes)) {
+            if (samParameterType != parameterType && (AsmUtil.isPrimitive(samParameterType) || AsmUtil.isPrimitive(parameterType))) {
+                return false
+            }
+        }
+
+        val samReturnType = asmMethod.returnType
+        val returnType = invoke.returnType
+        return samReturnType == Type.VOID_TYPE || samReturnType == returnType ||
+               (!AsmUtil.isPrimitive(samReturnType) && returnType != Type.VOID_TYPE)
+    }
+
+    /**
+     * <code>(function -> samInstance)</code>, null function value is converted to null
+     */
+    fun genSamValue(v: InstructionAdapter) {
+        val samAsmType = typeMapper.mapType(samType.type)
+        val functionAsmType = typeMapper.mapType(samType.kotlinFunctionType)
+        val asmMethod = typeMapper.mapAsmMethod(samMethod)
+        val samMethodType = Type.getMethodType(asmMethod.descriptor)
+
+        val invokeDescriptor = Type.getMethodDescriptor(OBJECT_TYPE, *Array(asmMethod.argumentTypes.size) { OBJECT_TYPE })
+        val implementation = Handle(Opcodes.H_INVOKEINTERFACE, functionAsmType.internalName, "invoke", invokeDescriptor)
+
+        val ifNonNull = Label()
+        val afterAll = Label()
+
+        v.dup()
+        v.ifnonnull(ifNonNull)
+        v.pop()
+        v.aconst(null)
+        v.goTo(afterAll)
+
+        v.mark(ifNonNull)
+        v.invokedynamic(
+                asmMethod.name,
+                Type.getMethodDescriptor(samAsmType, functionAsmType),
+                METAFACTORY,
+                arrayOf<Any>(samMethodType, implementation, samMethodType)
+        )
+
+        v.mark(afterAll)
+    }
+
+    /**
+     * <code>(captured values -> samInstance)</code> for a lambda whose body is the static [implementation] method
+     * of [implementationOwner], which takes the captured values before the parameters of the lambda
+     */
+    fun genLambdaSamValue(v: InstructionAdapter, implementationOwner: Type, implementation: Method) {
+        val samAsmType = typeMapper.mapType(samType.type)
+        val asmMethod = typeMapper.mapAsmMethod(samMethod)
+
+        val parameterTypes = implementation.argumentTypes
+        val capturedCount = parameterTypes.size - asmMethod.argumentTypes.size
+        val capturedTypes = parameterTypes.copyOfRange(0, capturedCount)
+        val instantiatedMethodType = Type.getMethodType(asmMethod.returnType, *parameterTypes.copyOfRange(capturedCount, parameterTypes.size))
+
+        v.invokedynamic(
+                asmMethod.name,
+                Type.getMethodDescriptor(samAsmType, *capturedTypes),
+                METAFACTORY,
+                arrayOf<Any>(
+                        Type.getMethodType(asmMethod.descriptor),
+                        Handle(Opcodes.H_INVOKESTATIC, implementationOwner.internalName, implementation.name, implementation.descriptor),
+                        instantiatedMethodType
+                )
+        )
+    }
+
+    companion object {
+        private val METAFACTORY = Handle(
+                Opcodes.H_INVOKESTATIC,
+                "java/lang/invoke/LambdaMetafactory",
+                "metafactory",
+                "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+                "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)" +
+                "Ljava/lang/invoke/CallSite;"
+        )
+
+        private fun isSerializable(classifier: ClassifierDescriptor?): Boolean =
+                classifier != null && DescriptorUtils.getFqName(classifier).asString() == "java.io.Serializable"
+    }
+}
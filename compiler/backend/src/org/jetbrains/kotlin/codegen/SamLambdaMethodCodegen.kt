@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding
+import org.jetbrains.kotlin.codegen.context.CodegenContext
+import org.jetbrains.kotlin.codegen.context.InlineLambdaContext
+import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil
+import org.jetbrains.kotlin.descriptors.FunctionDescriptor
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.OtherOrigin
+import org.jetbrains.org.objectweb.asm.Opcodes.*
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.Method
+import org.jetbrains.org.objectweb.asm.tree.FieldInsnNode
+import org.jetbrains.org.objectweb.asm.tree.IincInsnNode
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.org.objectweb.asm.tree.VarInsnNode
+
+/**
+ * Generates the body of a lambda literal, which is SAM-converted via [SamLambdaMetafactory], into a private static method
+ * of the class containing the lambda instead of a closure class.
+ *
+ * The body is generated in the context of the closure class of the lambda, like its `invoke` method would be (the class itself
+ * is never written), and then the values captured by the lambda, which the body reads from the fields of the closure instance,
+ * become the leading parameters of the static method, in the order of the constructor parameters of the closure class.
+ * This requires that the closure instance isn't used otherwise, so lambdas containing functions, classes or callable references,
+ * which could capture the closure instance, are not supported.
+ */
+class SamLambdaMethodCodegen(
+        private val codegen: ExpressionCodegen,
+        private val declaration: KtDeclarationWithBody,
+        private val descriptor: FunctionDescriptor
+) {
+    private val state = codegen.state
+    private val typeMapper = state.typeMapper
+    private val parentCodegen = codegen.parentCodegen
+
+    fun generate(): Method {
+        val closureContext = codegen.context.intoClosure(descriptor, codegen, typeMapper)
+        val signature = typeMapper.mapSignatureSkipGeneric(descriptor)
+        val invoke = signature.asmMethod
+
+        val node = MethodNode(InlineCodegenUtil.API, ACC_PUBLIC or ACC_FINAL, invoke.name, invoke.descriptor, null, null)
+        val adapter = InlineCodegenUtil.wrapWithMaxLocalCalc(node)
+        FunctionCodegen.generateMethodBody(
+                adapter, descriptor, closureContext.intoFunction(descriptor), signature,
+                ClosureGenerationStrategy(state, declaration), parentCodegen
+        )
+        adapter.visitMaxs(-1, -1)
+
+        val closureType = typeMapper.mapClass(closureContext.contextDescriptor)
+        val closure = state.bindingContext[CodegenBinding.CLOSURE, closureContext.contextDescriptor]
+                      ?: throw IllegalStateException("Closure must be calculated for class: ${closureContext.contextDescriptor}")
+        val capturedFields = ClosureCodegen.calculateConstructorParameters(typeMapper, closure, closureType)
+
+        turnCapturedFieldsIntoParameters(node, closureType, capturedFields)
+
+        val method = Method(
+                getMethodName(closureType),
+                Type.getMethodDescriptor(invoke.returnType, *(capturedFields.map { it.fieldType } + invoke.argumentTypes).toTypedArray())
+        )
+        val mv = parentCodegen.v.newMethod(
+                OtherOrigin(declaration, descriptor), ACC_PRIVATE or ACC_STATIC or ACC_SYNTHETIC, method.name, method.descriptor, null, null
+        )
+        node.accept(mv)
+
+        return method
+    }
+
+    private fun turnCapturedFieldsIntoParameters(node: MethodNode, closureType: Type, capturedFields: List<FieldInfo>) {
+        val capturedSlots = hashMapOf<String, Int>()
+        var capturedSize = 0
+        for (field in capturedFields) {
+            capturedSlots[field.fieldName] = capturedSize
+            capturedSize += field.fieldType.size
+        }
+
+        // The closure instance in slot 0 is removed and the captured values are put before the parameters of the lambda
+        val shift = capturedSize - 1
+
+        var insn = node.instructions.first
+        while (insn != null) {
+            if (insn is VarInsnNode && insn.`var` == 0) {
+                val field = insn.next as? FieldInsnNode
+                if (insn.opcode != ALOAD || field == null || field.opcode != GETFIELD || field.owner != closureType.internalName) {
+                    throw IllegalStateException("Closure instance should only be used to read captured values: $descriptor")
+                }
+                val slot = capturedSlots[field.name]
+                           ?: throw IllegalStateException("Unknown captured value ${field.name}: $descriptor")
+
+                val load = VarInsnNode(Type.getType(field.desc).getOpcode(ILOAD), slot)
+                node.instructions.set(field, load)
+                node.instructions.remove(insn)
+                insn = load.next
+                continue
+            }
+
+            when (insn) {
+                is VarInsnNode -> insn.`var` += shift
+                is IincInsnNode -> insn.`var` += shift
+                is FieldInsnNode -> if (insn.owner == closureType.internalName) {
+                    throw IllegalStateException("Closure instance should only be used to read captured values: $descriptor")
+                }
+            }
+            insn = insn.next
+        }
+
+        node.localVariables?.let { localVariables ->
+            localVariables.removeAll { it.index == 0 }
+            localVariables.forEach { it.index += shift }
+        }
+        node.maxLocals += shift
+    }
+
+    // The closure class name is unique in the containing class, e.g. method of `Foo$bar$1` in `Foo` is `lambda$bar$1`
+    private fun getMethodName(closureType: Type): String {
+        val className = parentCodegen.className
+        val closureName = closureType.internalName
+        val suffix = if (closureName.startsWith("$className\$")) closureName.substring(className.length + 1)
+                     else closureName.substringAfterLast('/')
+        return "lambda\$$suffix"
+    }
+
+    companion object {
+        @JvmStatic
+        fun isApplicable(codegen: ExpressionCodegen, declaration: KtDeclarationWithBody, descriptor: FunctionDescriptor): Boolean {
+            if (!codegen.state.classBuilderMode.generateBodies || descriptor.isSuspend) return false
+
+            // The method is private, so the code calling it can't be copied to other classes by the inliner
+            if (isInInlineFunction(codegen.context)) return false
+
+            // Handles to static methods of interfaces need the interface flag, so lambdas in interfaces still get closure classes
+            if (DescriptorUtils.isInterface(codegen.parentCodegen.context.contextDescriptor)) return false
+
+            return !containsClosures(declaration)
+        }
+
+        private fun isInInlineFunction(context: CodegenContext<*>): Boolean {
+            var current: CodegenContext<*>? = context
+            while (current != null) {
+                if (current.isInlineMethodContext || current is InlineLambdaContext) return true
+                current = current.parentContext
+            }
+            return false
+        }
+
+        private fun containsClosures(declaration: KtDeclarationWithBody): Boolean {
+            var result = false
+            declaration.bodyExpression?.accept(object : KtTreeVisitorVoid() {
+                override fun visitLambdaExpression(lambdaExpression: KtLambdaExpression) {
+                    result = true
+                }
+
+                override fun visitNamedFunction(function: KtNamedFunction) {
+                    result = true
+                }
+
+                override fun visitClassOrObject(classOrObject: KtClassOrObject) {
+                    result = true
+                }
+
+                override fun visitCallableReferenceExpression(expression: KtCallableReferenceExpression) {
+                    result = true
+                }
+
+                override fun visitProperty(property: KtProperty) {
+                    if (property.hasDelegate()) {
+                        result = true
+                    }
+                    else {
+                        super.visitProperty(property)
+                    }
+                }
+            })
+            return result
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes.JAVA_STRING_TYPE
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes.OBJECT_TYPE
+import org.jetbrains.org.objectweb.asm.Handle
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter
+import java.util.*
+
+/**
+ * Generates a string concatenation either as a StringBuilder chain or, if [useInvokeDynamic] is set,
+ * as a call of `java.lang.invoke.StringConcatFactory.makeConcatWithConstants` with constant parts folded into the recipe.
+ */
+class StringConcatGenerator(val useInvokeDynamic: Boolean, private val v: InstructionAdapter) {
+    private val recipe = StringBuilder()
+    private val argumentTypes = ArrayList<Type>()
+    private val constants = ArrayList<String>()
+    private var argumentSlots = 0
+
+    fun genStringBuilderConstructor() {
+        if (!useInvokeDynamic) {
+            AsmUtil.genStringBuilderConstructor(v)
+        }
+    }
+
+    /**
+     * Starts the concatenation with a value which has already been put on the stack
+     */
+    fun genStringBuilderConstructorForValueOnStack(type: Type) {
+        if (useInvokeDynamic) {
+            addArgument(type)
+        }
+        else {
+            AsmUtil.genStringBuilderConstructor(v)
+            v.swap()
+            AsmUtil.genInvokeAppendMethod(v, type)
+        }
+    }
+
+    fun appendConstant(value: String) {
+        if (useInvokeDynamic) {
+            for (c in value) {
+                if (c == TAG_ARGUMENT || c == TAG_CONSTANT) {
+                    // Tag characters can't be used literally in the recipe
+                    recipe.append(TAG_CONSTANT)
+                    constants.add(c.toString())
+                }
+                else {
+                    recipe.append(c)
+                }
+            }
+        }
+        else {
+            v.aconst(value)
+            AsmUtil.genInvokeAppendMethod(v, JAVA_STRING_TYPE)
+        }
+    }
+
+    fun append(value: StackValue, type: Type) {
+        if (useInvokeDynamic) {
+            val argumentType = argumentType(type)
+            if (argumentSlots + argumentType.size > MAX_ARGUMENT_SLOTS) {
+                // The concatenation is split: the result of the first part becomes the first argument of the rest
+                genToString()
+                addArgument(JAVA_STRING_TYPE)
+            }
+            value.put(argumentType, v)
+            addArgument(argumentType)
+        }
+        else {
+            value.put(type, v)
+            AsmUtil.genInvokeAppendMethod(v, if (type.sort == Type.ARRAY) OBJECT_TYPE else type)
+        }
+    }
+
+    fun genToString() {
+        if (useInvokeDynamic) {
+            v.invokedynamic(
+                    "makeConcatWithConstants",
+                    Type.getMethodDescriptor(JAVA_STRING_TYPE, *argumentTypes.toTypedArray()),
+                    MAKE_CONCAT_WITH_CONSTANTS,
+                    arrayOf<Any>(recipe.toString(), *constants.toTypedArray())
+            )
+            recipe.setLength(0)
+            argumentTypes.clear()
+            constants.clear()
+            argumentSlots = 0
+        }
+        else {
+            v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false)
+        }
+    }
+
+    private fun addArgument(type: Type) {
+        recipe.append(TAG_ARGUMENT)
+        argumentTypes.add(type)
+        argumentSlots += type.size
+    }
+
+    companion object {
+        private const val TAG_ARGUMENT = '\u0001'
+        private const val TAG_CONSTANT = '\u0002'
+
+        private const val MAX_ARGUMENT_SLOTS = 200
+
+        private val MAKE_CONCAT_WITH_CONSTANTS = Handle(
+                Opcodes.H_INVOKESTATIC,
+                "java/lang/invoke/StringConcatFactory",
+                "makeConcatWithConstants",
+                "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;" +
+                "[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;"
+        )
+
+        @JvmStatic
+        fun create(state: GenerationState, v: InstructionAdapter): StringConcatGenerator =
+                StringConcatGenerator(state.useInvokeDynamicStringConcat, v)
+
+        // Only the classes which are always accessible from the call site are used in the call site descriptor
+        private fun argumentType(type: Type): Type = when (type.sort) {
+            Type.OBJECT -> if (type == JAVA_STRING_TYPE) type else OBJECT_TYPE
+            Type.ARRAY -> OBJECT_TYPE
+            else -> type
+        }
+    }
+}
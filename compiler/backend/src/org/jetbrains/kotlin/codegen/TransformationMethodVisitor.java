@@ -58,6 +58,19 @@ public abstract class TransformationMethodVisitor extends MethodVisitor {
 
         super.visitEnd();
 
+        if (!isTransformationDeferred()) {
+            transformAndEmit();
+        }
+    }
+
+    /**
+     * If true, {@link #transformAndEmit()} is called later by the owner of this visitor
+     */
+    protected boolean isTransformationDeferred() {
+        return false;
+    }
+
+    public void transformAndEmit() {
         try {
             if (shouldBeTransformed(methodNode)) {
                 performTransformations(methodNode);
@@ -86,6 +99,11 @@ public abstract class TransformationMethodVisitor extends MethodVisitor {
 
     protected abstract void performTransformations(@NotNull MethodNode methodNode);
 
+    @NotNull
+    public MethodNode getMethodNode() {
+        return methodNode;
+    }
+
     /**
      * You can use it when you need to ignore visit end
      */
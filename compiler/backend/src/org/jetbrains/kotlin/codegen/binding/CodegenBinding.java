@@ -66,6 +66,9 @@ public class CodegenBinding {
     public static final WritableSlice<VariableDescriptor, VariableDescriptor> LOCAL_VARIABLE_PROPERTY_METADATA =
             Slices.createSimpleSlice();
 
+    public static final WritableSlice<KtDeclarationContainer, List<KtProperty>> DELEGATED_PROPERTIES_WITH_METADATA =
+            Slices.createSimpleSlice();
+
     static {
         BasicWritableSlice.initSliceDebugNames(CodegenBinding.class);
     }
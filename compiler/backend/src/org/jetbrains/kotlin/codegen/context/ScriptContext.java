@@ -32,11 +32,14 @@ import org.jetbrains.kotlin.psi.KtScript;
 import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils;
 import org.jetbrains.kotlin.resolve.jvm.AsmTypes;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ScriptContext extends ClassContext {
     private final ScriptDescriptor scriptDescriptor;
     private final List<ScriptDescriptor> earlierScripts;
+    private final Set<ScriptDescriptor> earlierScriptSet;
     private final KtExpression lastStatement;
 
     public ScriptContext(
@@ -49,6 +52,7 @@ public class ScriptContext extends ClassContext {
         super(typeMapper, contextDescriptor, OwnerKind.IMPLEMENTATION, parentContext, null);
         this.scriptDescriptor = scriptDescriptor;
         this.earlierScripts = earlierScripts;
+        this.earlierScriptSet = new HashSet<ScriptDescriptor>(earlierScripts);
         KtScript script = (KtScript) DescriptorToSourceUtils.getSourceFromDescriptor(scriptDescriptor);
         assert script != null : "Declaration should be present for script: " + scriptDescriptor;
         KtDeclaration lastDeclaration = CollectionsKt.lastOrNull(script.getDeclarations());
@@ -79,13 +83,14 @@ public class ScriptContext extends ClassContext {
         return earlierScripts;
     }
 
+    // Field names don't depend on the set of earlier scripts, which is different for each script, so that the body
+    // of an inline function declared in an earlier script reads the fields of its own script correctly when it's inlined
     @NotNull
     public String getScriptFieldName(@NotNull ScriptDescriptor scriptDescriptor) {
-        int index = earlierScripts.indexOf(scriptDescriptor);
-        if (index < 0) {
+        if (!earlierScriptSet.contains(scriptDescriptor)) {
             throw new IllegalStateException("Unregistered script: " + scriptDescriptor);
         }
-        return "script$" + (index + 1);
+        return "script$" + scriptDescriptor.getName().asString();
     }
 
     @Nullable
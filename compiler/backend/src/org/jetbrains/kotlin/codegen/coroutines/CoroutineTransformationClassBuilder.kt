@@ -196,6 +196,7 @@ class CoroutineTransformerMethodVisitor(
         // We postpone these actions because they change instruction indices that we use when obtaining frames
         val postponedActions = mutableListOf<() -> Unit>()
         val maxVarsCountByType = mutableMapOf<Type, Int>()
+        val varsCountByTypeForSuspensionPoints = mutableMapOf<SuspensionPoint, Map<Type, Int>>()
         val livenessFrames = analyzeLiveness(methodNode)
 
         for (suspension in suspensionPoints) {
@@ -222,6 +223,8 @@ class CoroutineTransformerMethodVisitor(
             // So we only spill variables that are alive at the begin of suspension point.
             // NB: it's also rather useful for sake of optimization
             val livenessFrame = livenessFrames[suspensionCallBegin.index()]
+            // Variables which are dead after the suspension call (e.g. spilled arguments of the call) don't need to be saved and restored
+            val livenessFrameAfterSuspension = livenessFrames[suspension.tryCatchBlockEndLabelAfterSuspensionCall.index()]
 
             // 0 - this
             // 1 - continuation argument
@@ -231,7 +234,8 @@ class CoroutineTransformerMethodVisitor(
                             .map { Pair(it, frame.getLocal(it)) }
                             .filter {
                                 val (index, value) = it
-                                value != BasicValue.UNINITIALIZED_VALUE && livenessFrame.isAlive(index)
+                                value != BasicValue.UNINITIALIZED_VALUE &&
+                                livenessFrame.isAlive(index) && livenessFrameAfterSuspension.isAlive(index)
                             }
 
             for ((index, basicValue) in variablesToSpill) {
@@ -267,6 +271,27 @@ class CoroutineTransformerMethodVisitor(
             varsCountByType.forEach {
                 maxVarsCountByType[it.key] = Math.max(maxVarsCountByType[it.key] ?: 0, it.value)
             }
+            varsCountByTypeForSuspensionPoints[suspension] = varsCountByType
+        }
+
+        // Fields are shared between suspension points, so a reference field which is not used by a suspension point
+        // may hold an object spilled at another one. It's cleared to let the object be collected while the coroutine is suspended
+        val maxReferenceIndex = maxVarsCountByType[AsmTypes.OBJECT_TYPE]
+        if (maxReferenceIndex != null) {
+            for (suspension in suspensionPoints) {
+                val usedReferencesCount = varsCountByTypeForSuspensionPoints[suspension]?.get(AsmTypes.OBJECT_TYPE)?.plus(1) ?: 0
+                if (usedReferencesCount > maxReferenceIndex) continue
+
+                postponedActions.add {
+                    instructions.insertBefore(suspension.suspensionCallBegin, withInstructionAdapter {
+                        for (index in usedReferencesCount..maxReferenceIndex) {
+                            load(0, AsmTypes.OBJECT_TYPE)
+                            aconst(null)
+                            putfield(classBuilder.thisName, AsmTypes.OBJECT_TYPE.fieldNameForVar(index), AsmTypes.OBJECT_TYPE.descriptor)
+                        }
+                    })
+                }
+            }
         }
 
         postponedActions.forEach(Function0<Unit>::invoke)
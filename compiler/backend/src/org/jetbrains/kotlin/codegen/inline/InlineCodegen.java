@@ -58,9 +58,11 @@ import org.jetbrains.org.objectweb.asm.Opcodes;
 import org.jetbrains.org.objectweb.asm.Type;
 import org.jetbrains.org.objectweb.asm.commons.Method;
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.IincInsnNode;
 import org.jetbrains.org.objectweb.asm.tree.InsnList;
 import org.jetbrains.org.objectweb.asm.tree.LabelNode;
 import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+import org.jetbrains.org.objectweb.asm.tree.VarInsnNode;
 
 import java.io.IOException;
 import java.util.*;
@@ -241,7 +243,22 @@ public class InlineCodegen extends CallGenerator {
             return doCreateMethodNodeFromSource(functionDescriptor, jvmSignature, codegen, context, callDefault, state, asmMethod);
         }
 
-        SMAPAndMethodNode resultInCache = InlineCacheKt.getOrPut(
+        SMAPAndMethodNode resultInCache = getCompiledMethodNode(functionDescriptor, directMember, methodId, asmMethod, state);
+        return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.getNode()));
+    }
+
+    /**
+     * The result is owned by the inline cache and must not be modified
+     */
+    @NotNull
+    private static SMAPAndMethodNode getCompiledMethodNode(
+            @NotNull final FunctionDescriptor functionDescriptor,
+            @NotNull final CallableMemberDescriptor directMember,
+            @NotNull MethodId methodId,
+            @NotNull final Method asmMethod,
+            @NotNull final GenerationState state
+    ) {
+        return InlineCacheKt.getOrPut(
                 state.getInlineCache().getMethodNodeById(), methodId, new Function0<SMAPAndMethodNode>() {
                     @Override
                     public SMAPAndMethodNode invoke() {
@@ -253,8 +270,54 @@ public class InlineCodegen extends CallGenerator {
                     }
                 }
         );
+    }
 
-        return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.getNode()));
+    /**
+     * @return true if the given value parameter of a compiled inline function is never read in its body
+     * (the not-null assertion, which is removed on inlining, doesn't count), so that any value can be passed for it.
+     * Inline functions from sources are not checked: their bodies are generated only when they're inlined.
+     * Neither are functions which are called rather than inlined because inlining is disabled.
+     */
+    public static boolean isValueParameterUnusedInCompiledBody(
+            @NotNull FunctionDescriptor function,
+            int valueParameterIndex,
+            @NotNull GenerationState state
+    ) {
+        FunctionDescriptor functionDescriptor = function.getOriginal();
+        if (!InlineUtil.isInline(functionDescriptor) || isBuiltInArrayIntrinsic(functionDescriptor)) return false;
+
+        // See ExpressionCodegen.getOrCreateCallGenerator
+        if (state.isInlineDisabled() && !InlineUtil.containsReifiedTypeParameters(functionDescriptor)) return false;
+
+        CallableMemberDescriptor directMember = getDirectMemberAndCallableFromObject(functionDescriptor);
+        if (!(directMember instanceof DeserializedCallableMemberDescriptor)) return false;
+
+        JvmMethodSignature signature = state.getTypeMapper().mapSignatureSkipGeneric(functionDescriptor);
+        Method asmMethod = signature.getAsmMethod();
+        MethodId methodId = new MethodId(DescriptorUtils.getFqNameSafe(functionDescriptor.getContainingDeclaration()), asmMethod);
+        MethodNode node = getCompiledMethodNode(functionDescriptor, directMember, methodId, asmMethod, state).getNode();
+
+        int slot = (node.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+        int valueParameters = 0;
+        for (JvmMethodParameterSignature parameter : signature.getValueParameters()) {
+            if (parameter.getKind() == JvmMethodParameterKind.VALUE && valueParameters++ == valueParameterIndex) {
+                return !isLocalVariableUsed(node, slot);
+            }
+            slot += parameter.getAsmType().getSize();
+        }
+        return false;
+    }
+
+    private static boolean isLocalVariableUsed(@NotNull MethodNode node, int slot) {
+        for (AbstractInsnNode insn = node.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof VarInsnNode && ((VarInsnNode) insn).var == slot) {
+                if (InlineCodegenUtil.getParameterAssertionEnd(insn) == null) return true;
+            }
+            else if (insn instanceof IincInsnNode && ((IincInsnNode) insn).var == slot) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @NotNull
@@ -267,7 +330,7 @@ public class InlineCodegen extends CallGenerator {
     }
 
     @NotNull
-    private static MethodNode cloneMethodNode(@NotNull MethodNode methodNode) {
+    static MethodNode cloneMethodNode(@NotNull MethodNode methodNode) {
         methodNode.instructions.resetLabels();
         MethodNode result = new MethodNode(
                 API, methodNode.access, methodNode.name, methodNode.desc, methodNode.signature,
@@ -302,24 +365,27 @@ public class InlineCodegen extends CallGenerator {
 
         final ClassId containerId = containingClasses.getImplClassId();
 
-        byte[] bytes = InlineCacheKt.getOrPut(state.getInlineCache().getClassBytes(), containerId, new Function0<byte[]>() {
+        final VirtualFile file = InlineCodegenUtil.findVirtualFile(state, containerId);
+        if (file == null) {
+            throw new IllegalStateException("Couldn't find declaration file for " + containerId);
+        }
+
+        return SharedInlineCache.INSTANCE.getMethodNode(file, containerId, asmMethod, state, new Function0<byte[]>() {
             @Override
             public byte[] invoke() {
-                VirtualFile file = InlineCodegenUtil.findVirtualFile(state, containerId);
-                if (file == null) {
-                    throw new IllegalStateException("Couldn't find declaration file for " + containerId);
-                }
-                try {
-                    return file.contentsToByteArray();
-                }
-                catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                return InlineCacheKt.getOrPut(state.getInlineCache().getClassBytes(), containerId, new Function0<byte[]>() {
+                    @Override
+                    public byte[] invoke() {
+                        try {
+                            return file.contentsToByteArray();
+                        }
+                        catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
             }
         });
-
-
-        return InlineCodegenUtil.getMethodNode(bytes, asmMethod.getName(), asmMethod.getDescriptor(), containerId, state);
     }
 
     @NotNull
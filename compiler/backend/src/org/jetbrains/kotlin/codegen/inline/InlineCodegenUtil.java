@@ -29,6 +29,7 @@ import org.jetbrains.kotlin.codegen.context.CodegenContextUtil;
 import org.jetbrains.kotlin.codegen.context.InlineLambdaContext;
 import org.jetbrains.kotlin.codegen.context.MethodContext;
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicArrayConstructorsKt;
+import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper;
 import org.jetbrains.kotlin.codegen.when.WhenByEnumsMapping;
@@ -430,6 +431,29 @@ public class InlineCodegenUtil {
         return context.isInlineMethodContext() || context instanceof InlineLambdaContext;
     }
 
+    /**
+     * @return the last instruction of the not-null assertion of a parameter which starts with the given instruction, or null.
+     * The assertion is either `ALOAD slot, LDC "name", INVOKESTATIC Intrinsics.checkParameterIsNotNull`, or
+     * `ALOAD slot, IFNONNULL L, LDC "name", INVOKESTATIC Intrinsics.throwParameterIsNull` with compact null checks
+     */
+    @Nullable
+    public static AbstractInsnNode getParameterAssertionEnd(@NotNull AbstractInsnNode load) {
+        if (load.getOpcode() != Opcodes.ALOAD) return null;
+
+        AbstractInsnNode next = load.getNext();
+        String intrinsic = "checkParameterIsNotNull";
+        if (next != null && next.getOpcode() == Opcodes.IFNONNULL) {
+            next = next.getNext();
+            intrinsic = "throwParameterIsNull";
+        }
+
+        if (next == null || next.getOpcode() != Opcodes.LDC) return null;
+        AbstractInsnNode call = next.getNext();
+        return call instanceof MethodInsnNode &&
+               ((MethodInsnNode) call).name.equals(intrinsic) &&
+               ((MethodInsnNode) call).owner.equals(IntrinsicMethods.INTRINSICS_CLASS_NAME) ? call : null;
+    }
+
     public static int getConstant(@NotNull AbstractInsnNode ins) {
         int opcode = ins.getOpcode();
         Integer value;
@@ -22,7 +22,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.ClosureCodegen;
 import org.jetbrains.kotlin.codegen.StackValue;
-import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods;
 import org.jetbrains.kotlin.codegen.optimization.FixStackWithLabelNormalizationMethodTransformer;
 import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper;
 import org.jetbrains.kotlin.utils.SmartList;
@@ -635,22 +634,16 @@ public class MethodInliner {
 
     private static void removeClosureAssertions(@NotNull MethodNode node) {
         AbstractInsnNode cur = node.instructions.getFirst();
-        while (cur != null && cur.getNext() != null) {
+        while (cur != null) {
             AbstractInsnNode next = cur.getNext();
-            if (next.getType() == AbstractInsnNode.METHOD_INSN) {
-                MethodInsnNode methodInsnNode = (MethodInsnNode) next;
-                if (methodInsnNode.name.equals("checkParameterIsNotNull") &&
-                    methodInsnNode.owner.equals(IntrinsicMethods.INTRINSICS_CLASS_NAME)) {
-                    AbstractInsnNode prev = cur.getPrevious();
-
-                    assert cur.getOpcode() == Opcodes.LDC : "checkParameterIsNotNull should go after LDC but " + cur;
-                    assert prev.getOpcode() == Opcodes.ALOAD : "checkParameterIsNotNull should be invoked on local var but " + prev;
-
-                    node.instructions.remove(prev);
-                    node.instructions.remove(cur);
-                    cur = next.getNext();
-                    node.instructions.remove(next);
-                    next = cur;
+            AbstractInsnNode assertionEnd = InlineCodegenUtil.getParameterAssertionEnd(cur);
+            if (assertionEnd != null) {
+                next = assertionEnd.getNext();
+                // The label of IFNONNULL in a compact assertion is left in place, it's not used anymore
+                while (cur != next) {
+                    AbstractInsnNode toRemove = cur;
+                    cur = cur.getNext();
+                    node.instructions.remove(toRemove);
                 }
             }
             cur = next;
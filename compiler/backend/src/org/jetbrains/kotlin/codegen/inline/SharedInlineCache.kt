@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import com.intellij.openapi.vfs.VirtualFile
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.util.PerformanceCounter
+import org.jetbrains.kotlin.utils.JarEntryStamp
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.commons.Method
+import java.util.*
+
+/**
+ * Bodies of inline functions from library jars. [INSTANCE] is shared between all compilations in the process
+ * (e.g. in the compile daemon), unlike [InlineCache] which lives as long as a [GenerationState].
+ *
+ * Entries are keyed by the [JarEntryStamp] of the class file, so a changed jar is never read from the cache,
+ * and classes outside of jars are not cached.
+ * The cache is bounded by the total number of instructions in the cached bodies.
+ */
+class SharedInlineCache(private val maxInstructions: Int) {
+    private data class Key(val classFile: JarEntryStamp, val method: Method)
+
+    private class Entry(val classVersion: Int, val classInternalName: String, private val methodNode: SMAPAndMethodNode) {
+        val size: Int = methodNode.node.instructions.size()
+
+        // Cloning resets labels of the cached node, so it's never done concurrently
+        @Synchronized
+        fun copyMethodNode(): SMAPAndMethodNode = methodNode.copyWithNewNode(InlineCodegen.cloneMethodNode(methodNode.node))
+    }
+
+    private val entries = LinkedHashMap<Key, Entry>(16, 0.75f, true)
+    private var totalSize = 0
+
+    /**
+     * The result is owned by the caller: it's not shared with the cache
+     */
+    fun getMethodNode(
+            file: VirtualFile,
+            classId: ClassId,
+            method: Method,
+            state: GenerationState,
+            classBytes: () -> ByteArray
+    ): SMAPAndMethodNode? {
+        val key = JarEntryStamp.create(file)?.let { Key(it, method) }
+        if (key != null) {
+            val entry = synchronized(entries) { entries[key] }
+            if (entry != null) {
+                hitCounter.increment()
+                InlineCodegenUtil.assertVersionNotGreaterThanGeneratedOne(entry.classVersion, entry.classInternalName, state)
+                return entry.copyMethodNode()
+            }
+            missCounter.increment()
+        }
+
+        val bytes = classBytes()
+        val result = InlineCodegenUtil.getMethodNode(bytes, method.name, method.descriptor, classId, state) ?: return null
+
+        if (key != null) {
+            val classReader = ClassReader(bytes)
+            // Class file version is stored in bytes 4-7 as minor and major versions, which is how ASM encodes it
+            val entry = Entry(classReader.readInt(4), classReader.className,
+                              result.copyWithNewNode(InlineCodegen.cloneMethodNode(result.node)))
+            put(key, entry)
+        }
+
+        return result
+    }
+
+    private fun put(key: Key, entry: Entry) {
+        if (entry.size > maxInstructions) return
+
+        synchronized(entries) {
+            val previous = entries.put(key, entry)
+            totalSize += entry.size - (previous?.size ?: 0)
+
+            val iterator = entries.values.iterator()
+            while (totalSize > maxInstructions) {
+                totalSize -= iterator.next().size
+                iterator.remove()
+            }
+        }
+    }
+
+    companion object {
+        @JvmField
+        val INSTANCE = SharedInlineCache(Integer.getInteger("kotlin.inline.cache.instructions", 200000))
+
+        private val hitCounter = PerformanceCounter.create("Shared inline cache hit")
+        private val missCounter = PerformanceCounter.create("Shared inline cache miss")
+    }
+}
@@ -18,8 +18,6 @@ package org.jetbrains.kotlin.codegen.intrinsics
 
 import com.intellij.psi.PsiElement
 import org.jetbrains.kotlin.codegen.*
-import org.jetbrains.kotlin.codegen.AsmUtil.genInvokeAppendMethod
-import org.jetbrains.kotlin.codegen.AsmUtil.genStringBuilderConstructor
 import org.jetbrains.kotlin.lexer.KtTokens
 import org.jetbrains.kotlin.psi.KtBinaryExpression
 import org.jetbrains.kotlin.psi.KtCallableReferenceExpression
@@ -40,22 +38,21 @@ class Concat : IntrinsicMethod() {
             arguments: List<KtExpression>,
             receiver: StackValue
     ): Type {
+        val generator = StringConcatGenerator.create(codegen.state, v)
         if (element is KtBinaryExpression && element.operationReference.getReferencedNameElementType() == KtTokens.PLUS) {
             // LHS + RHS
-            genStringBuilderConstructor(v)
-            codegen.invokeAppend(element.left)
-            codegen.invokeAppend(element.right)
+            generator.genStringBuilderConstructor()
+            codegen.invokeAppend(generator, element.left!!)
+            codegen.invokeAppend(generator, element.right!!)
         }
         else {
             // LHS?.plus(RHS)
             receiver.put(AsmTypes.OBJECT_TYPE, v)
-            genStringBuilderConstructor(v)
-            v.swap()
-            genInvokeAppendMethod(v, returnType)
-            codegen.invokeAppend(arguments.get(0))
+            generator.genStringBuilderConstructorForValueOnStack(returnType)
+            codegen.invokeAppend(generator, arguments.get(0))
         }
 
-        v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false)
+        generator.genToString()
         return JAVA_STRING_TYPE
     }
 
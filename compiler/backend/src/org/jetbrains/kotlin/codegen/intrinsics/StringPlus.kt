@@ -18,8 +18,26 @@ package org.jetbrains.kotlin.codegen.intrinsics
 
 import org.jetbrains.kotlin.codegen.Callable
 import org.jetbrains.kotlin.codegen.CallableMethod
+import org.jetbrains.kotlin.codegen.ExpressionCodegen
+import org.jetbrains.kotlin.codegen.StackValue
+import org.jetbrains.kotlin.codegen.StringConcatGenerator
+import org.jetbrains.kotlin.descriptors.FunctionDescriptor
+import org.jetbrains.kotlin.resolve.calls.model.ResolvedCall
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes
 
 class StringPlus : IntrinsicMethod() {
+    override fun toCallable(fd: FunctionDescriptor, isSuper: Boolean, resolvedCall: ResolvedCall<*>, codegen: ExpressionCodegen): Callable {
+        if (!codegen.state.useInvokeDynamicStringConcat) return super.toCallable(fd, isSuper, resolvedCall, codegen)
+
+        return createIntrinsicCallable(codegen.state.typeMapper.mapToCallableMethod(fd, false)) {
+            // Both arguments are already on the stack, in the order of the call site arguments
+            val generator = StringConcatGenerator(true, it)
+            generator.append(StackValue.onStack(AsmTypes.JAVA_STRING_TYPE), AsmTypes.JAVA_STRING_TYPE)
+            generator.append(StackValue.onStack(AsmTypes.OBJECT_TYPE), AsmTypes.OBJECT_TYPE)
+            generator.genToString()
+        }
+    }
+
     override fun toCallable(method: CallableMethod): Callable =
             createIntrinsicCallable(method) {
                 it.invokestatic("kotlin/jvm/internal/Intrinsics", "stringPlus",
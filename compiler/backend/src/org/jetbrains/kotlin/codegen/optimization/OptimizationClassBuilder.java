@@ -20,16 +20,26 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.ClassBuilder;
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilder;
+import org.jetbrains.kotlin.codegen.optimization.boxing.PrivateMethodsSpecialization;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
 import org.jetbrains.org.objectweb.asm.MethodVisitor;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class OptimizationClassBuilder extends DelegatingClassBuilder {
     private final ClassBuilder delegate;
     private final boolean disableOptimization;
+    // If the class can have private methods to specialize, its methods are transformed and emitted in done(),
+    // after the optimizations which need all methods of the class. Otherwise they are emitted as soon as they are generated
+    private final boolean deferMethods;
+    private final List<OptimizationMethodVisitor> deferredMethods = new ArrayList<OptimizationMethodVisitor>();
 
-    public OptimizationClassBuilder(@NotNull ClassBuilder delegate, boolean disableOptimization) {
+    public OptimizationClassBuilder(@NotNull ClassBuilder delegate, boolean disableOptimization, boolean deferMethods) {
         this.delegate = delegate;
         this.disableOptimization = disableOptimization;
+        this.deferMethods = !disableOptimization && deferMethods;
     }
 
     @NotNull
@@ -48,10 +58,42 @@ public class OptimizationClassBuilder extends DelegatingClassBuilder {
             @Nullable String signature,
             @Nullable String[] exceptions
     ) {
-        return new OptimizationMethodVisitor(
+        OptimizationMethodVisitor visitor = new OptimizationMethodVisitor(
                 super.newMethod(origin, access, name, desc, signature, exceptions),
                 disableOptimization,
+                deferMethods,
                 access, name, desc, signature, exceptions
         );
+        if (deferMethods) {
+            deferredMethods.add(visitor);
+        }
+        return visitor;
+    }
+
+    @Override
+    public void done() {
+        if (!deferredMethods.isEmpty()) {
+            List<MethodNode> methodNodes = new ArrayList<MethodNode>(deferredMethods.size());
+            for (OptimizationMethodVisitor visitor : deferredMethods) {
+                MethodNode methodNode = visitor.getMethodNodeForClassOptimizations();
+                if (methodNode != null) {
+                    methodNodes.add(methodNode);
+                }
+            }
+
+            for (MethodNode specialized : PrivateMethodsSpecialization.specialize(getThisName(), methodNodes)) {
+                specialized.accept(newMethod(
+                        JvmDeclarationOrigin.NO_ORIGIN, specialized.access, specialized.name, specialized.desc, specialized.signature,
+                        specialized.exceptions.toArray(new String[specialized.exceptions.size()])
+                ));
+            }
+
+            for (OptimizationMethodVisitor visitor : deferredMethods) {
+                visitor.transformAndEmit();
+            }
+            deferredMethods.clear();
+        }
+
+        super.done();
     }
 }
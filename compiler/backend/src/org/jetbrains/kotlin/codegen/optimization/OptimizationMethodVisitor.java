@@ -41,10 +41,13 @@ public class OptimizationMethodVisitor extends TransformationMethodVisitor {
     };
 
     private final boolean disableOptimization;
+    private final boolean deferred;
+    private boolean mandatoryTransformationsPerformed;
 
     public OptimizationMethodVisitor(
             @NotNull MethodVisitor delegate,
             boolean disableOptimization,
+            boolean deferred,
             int access,
             @NotNull String name,
             @NotNull String desc,
@@ -53,11 +56,36 @@ public class OptimizationMethodVisitor extends TransformationMethodVisitor {
     ) {
         super(delegate, access, name, desc, signature, exceptions);
         this.disableOptimization = disableOptimization;
+        this.deferred = deferred;
+    }
+
+    @Override
+    protected boolean isTransformationDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Returns the method node prepared for class-level optimizations or null if the method is not going to be optimized
+     */
+    @Nullable
+    public MethodNode getMethodNodeForClassOptimizations() {
+        MethodNode methodNode = getMethodNode();
+        if (methodNode.instructions.size() == 0 || disableOptimization || !canBeOptimized(methodNode)) return null;
+
+        performMandatoryTransformations(methodNode);
+        return methodNode;
+    }
+
+    private void performMandatoryTransformations(@NotNull MethodNode methodNode) {
+        if (!mandatoryTransformationsPerformed) {
+            MANDATORY_METHOD_TRANSFORMER.transform("fake", methodNode);
+            mandatoryTransformationsPerformed = true;
+        }
     }
 
     @Override
     protected void performTransformations(@NotNull MethodNode methodNode) {
-        MANDATORY_METHOD_TRANSFORMER.transform("fake", methodNode);
+        performMandatoryTransformations(methodNode);
         if (canBeOptimized(methodNode) && !disableOptimization) {
             for (MethodTransformer transformer : OPTIMIZATION_TRANSFORMERS) {
                 transformer.transform("fake", methodNode);
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.boxing
+
+import com.intellij.psi.PsiElement
+import org.jetbrains.kotlin.codegen.AsmUtil
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
+import org.jetbrains.kotlin.lexer.KtTokens
+import org.jetbrains.kotlin.psi.KtDeclarationContainer
+import org.jetbrains.kotlin.psi.KtNamedFunction
+import org.jetbrains.kotlin.psi.KtProperty
+import org.jetbrains.kotlin.util.PerformanceCounter
+import org.jetbrains.org.objectweb.asm.AnnotationVisitor
+import org.jetbrains.org.objectweb.asm.Label
+import org.jetbrains.org.objectweb.asm.MethodVisitor
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.TypePath
+import org.jetbrains.org.objectweb.asm.tree.*
+import java.util.*
+
+/**
+ * Interprocedural part of the boxing elimination, performed for all methods of a class before [RedundantBoxingMethodTransformer].
+ *
+ * If all calls of a private method inside the class pass boxed primitives of the same type as some parameter, the calls are
+ * redirected to a synthetic copy of the method taking the primitive value. Similarly, if the copy always returns boxed primitives
+ * of the same type, it returns them unboxed and the call sites box them. [RedundantBoxingMethodTransformer] then removes
+ * the box/unbox pairs which appear both in the copy and in the calling methods.
+ *
+ * A parameter (or the result) is specialized only if the boxing it introduces into the copy gets removed there,
+ * so the specialization never adds allocations. The original method is kept for the callers outside of the class,
+ * e.g. synthetic accessors and reflection.
+ */
+object PrivateMethodsSpecialization {
+    private const val MAX_SPECIALIZED_METHOD_SIZE = 300
+    private const val SPECIALIZED_METHOD_SUFFIX = "\$specialized"
+
+    private val eliminatedBoxingCounter = PerformanceCounter.create("Boxing eliminated by specialization of private methods")
+
+    /**
+     * [primitiveArgumentTypes] contains the primitive type of the boxed value passed as an argument or null if it's not a boxed value
+     */
+    private class CallSite(val caller: MethodNode, val insn: MethodInsnNode, val primitiveArgumentTypes: List<Type?>)
+
+    private class Specialization(val node: MethodNode, val primitiveParameterTypes: Array<Type?>, val primitiveReturnType: Type?)
+
+    /**
+     * Returns false if the class generated for [element] has no private methods to specialize, e.g. for lambdas.
+     * Methods of such a class don't need to be kept until the whole class is generated
+     */
+    @JvmStatic
+    fun canHaveCandidates(element: PsiElement?): Boolean {
+        if (element !is KtDeclarationContainer) return false
+
+        return element.declarations.any { declaration ->
+            declaration.hasModifier(KtTokens.PRIVATE_KEYWORD) &&
+            (declaration is KtNamedFunction ||
+             declaration is KtProperty && (declaration.hasDelegate() || declaration.accessors.any { it.hasBody() }))
+        }
+    }
+
+    /**
+     * Redirects calls of the specialized methods in [methods] and returns the specialized copies, which should be added to the class
+     */
+    @JvmStatic
+    fun specialize(internalClassName: String, methods: List<MethodNode>): List<MethodNode> {
+        val candidates = methods.filter { isCandidate(it) }.associateBy { it.name + it.desc }
+        if (candidates.isEmpty()) return emptyList()
+
+        val existingSignatures = methods.mapTo(HashSet<String>()) { it.name + it.desc }
+        val result = ArrayList<MethodNode>()
+
+        for ((signature, callSites) in collectCallSites(internalClassName, methods, candidates)) {
+            val specialization = createSpecialization(internalClassName, candidates[signature]!!, callSites) ?: continue
+            if (!existingSignatures.add(specialization.node.name + specialization.node.desc)) continue
+
+            for (callSite in callSites) {
+                redirectCall(callSite, specialization)
+            }
+            result.add(specialization.node)
+        }
+
+        return result
+    }
+
+    private fun isCandidate(method: MethodNode): Boolean {
+        if (method.access and Opcodes.ACC_PRIVATE == 0 || method.name == "<init>" || method.name == "<clinit>") return false
+        if (method.instructions.size() > MAX_SPECIALIZED_METHOD_SIZE) return false
+
+        val methodType = Type.getMethodType(method.desc)
+        return methodType.argumentTypes.any { it.sort == Type.OBJECT } || methodType.returnType.sort == Type.OBJECT
+    }
+
+    private fun collectCallSites(
+            internalClassName: String,
+            methods: List<MethodNode>,
+            candidates: Map<String, MethodNode>
+    ): Map<String, List<CallSite>> {
+        val result = LinkedHashMap<String, MutableList<CallSite>>()
+
+        for (caller in methods) {
+            val insns = caller.instructions.toArray()
+            if (insns.none { isCallOfCandidate(it, internalClassName, candidates) }) continue
+
+            val frames = MethodTransformer.analyze(internalClassName, caller, BoxingInterpreter(caller.instructions))
+            for ((index, insn) in insns.withIndex()) {
+                if (!isCallOfCandidate(insn, internalClassName, candidates)) continue
+                // Unreachable calls are removed later by dead code elimination
+                val frame = frames[index] ?: continue
+
+                insn as MethodInsnNode
+                val argumentsCount = Type.getArgumentTypes(insn.desc).size
+                val primitiveArgumentTypes = (0..argumentsCount - 1).map { i ->
+                    val value = frame.getStack(frame.stackSize - argumentsCount + i)
+                    if (value is BoxedBasicValue) AsmUtil.unboxPrimitiveTypeOrNull(value.type) else null
+                }
+                result.getOrPut(insn.name + insn.desc) { ArrayList() }.add(CallSite(caller, insn, primitiveArgumentTypes))
+            }
+        }
+
+        return result
+    }
+
+    private fun isCallOfCandidate(insn: AbstractInsnNode, internalClassName: String, candidates: Map<String, MethodNode>): Boolean {
+        if (insn !is MethodInsnNode || insn.owner != internalClassName) return false
+        val candidate = candidates[insn.name + insn.desc] ?: return false
+        val isStatic = candidate.access and Opcodes.ACC_STATIC != 0
+        return if (isStatic) insn.opcode == Opcodes.INVOKESTATIC else insn.opcode == Opcodes.INVOKESPECIAL
+    }
+
+    private fun createSpecialization(internalClassName: String, original: MethodNode, callSites: List<CallSite>): Specialization? {
+        val parameterTypes = Type.getArgumentTypes(original.desc)
+        val primitiveParameterTypes = arrayOfNulls<Type>(parameterTypes.size)
+        for (i in parameterTypes.indices) {
+            if (parameterTypes[i].sort != Type.OBJECT) continue
+            val primitiveType = callSites.first().primitiveArgumentTypes[i] ?: continue
+            if (callSites.all { it.primitiveArgumentTypes[i] == primitiveType }) {
+                primitiveParameterTypes[i] = primitiveType
+            }
+        }
+        var specializeReturnType = Type.getReturnType(original.desc).sort == Type.OBJECT
+
+        // Parameters and the result for which boxing can't be removed from the copy are excluded one by one
+        while (specializeReturnType || primitiveParameterTypes.any { it != null }) {
+            val copy = SpecializedCopy(original, primitiveParameterTypes)
+            val primitiveReturnType = if (specializeReturnType) copy.unboxReturnValues(internalClassName) else null
+            specializeReturnType = primitiveReturnType != null
+            if (!specializeReturnType && primitiveParameterTypes.all { it == null }) break
+
+            RedundantBoxingMethodTransformer().transform(internalClassName, copy.node)
+
+            val notRemovedBoxing = copy.parameterBoxings.indexOfFirst { it != null && copy.node.instructions.contains(it) }
+            when {
+                notRemovedBoxing >= 0 ->
+                    primitiveParameterTypes[notRemovedBoxing] = null
+                copy.returnUnboxings.any { copy.node.instructions.contains(it) } ->
+                    specializeReturnType = false
+                else ->
+                    return Specialization(copy.node, primitiveParameterTypes, primitiveReturnType)
+            }
+        }
+
+        return null
+    }
+
+    private fun redirectCall(callSite: CallSite, specialization: Specialization) {
+        val caller = callSite.caller
+        val call = callSite.insn
+        val parameterTypes = Type.getArgumentTypes(call.desc)
+        val primitiveParameterTypes = specialization.primitiveParameterTypes
+
+        val firstSpecialized = primitiveParameterTypes.indexOfFirst { it != null }
+        if (firstSpecialized >= 0) {
+            // Arguments starting from the first specialized one are spilled to new variables to be unboxed
+            val spillIndices = IntArray(parameterTypes.size)
+            for (i in firstSpecialized..parameterTypes.lastIndex) {
+                spillIndices[i] = caller.maxLocals
+                caller.maxLocals += parameterTypes[i].size
+            }
+
+            val insns = InsnList()
+            for (i in parameterTypes.lastIndex downTo firstSpecialized) {
+                insns.add(VarInsnNode(parameterTypes[i].getOpcode(Opcodes.ISTORE), spillIndices[i]))
+            }
+            for (i in firstSpecialized..parameterTypes.lastIndex) {
+                insns.add(VarInsnNode(parameterTypes[i].getOpcode(Opcodes.ILOAD), spillIndices[i]))
+                val primitiveType = primitiveParameterTypes[i] ?: continue
+                insns.add(TypeInsnNode(Opcodes.CHECKCAST, AsmUtil.boxType(primitiveType).internalName))
+                insns.add(unboxing(primitiveType))
+                eliminatedBoxingCounter.increment()
+            }
+            caller.instructions.insertBefore(call, insns)
+        }
+
+        call.name = specialization.node.name
+        call.desc = specialization.node.desc
+
+        if (specialization.primitiveReturnType != null) {
+            caller.instructions.insert(call, boxing(specialization.primitiveReturnType))
+            eliminatedBoxingCounter.increment()
+        }
+    }
+
+    /**
+     * Copy of [original] which takes the primitive values for the parameters with non-null [primitiveParameterTypes].
+     * All variables of the original method are shifted to the slots after the new parameters, which are boxed
+     * (if needed) and stored to the original variables at the beginning of the copy.
+     */
+    private class SpecializedCopy(private val original: MethodNode, primitiveParameterTypes: Array<Type?>) {
+        val node: MethodNode
+        val parameterBoxings = arrayOfNulls<AbstractInsnNode>(primitiveParameterTypes.size)
+        val returnUnboxings = ArrayList<AbstractInsnNode>()
+
+        init {
+            val parameterTypes = Type.getArgumentTypes(original.desc)
+            val newParameterTypes = Array(parameterTypes.size) { primitiveParameterTypes[it] ?: parameterTypes[it] }
+            val isStatic = original.access and Opcodes.ACC_STATIC != 0
+            val shift = (if (isStatic) 0 else 1) + newParameterTypes.sumBy { it.size }
+
+            node = MethodNode(
+                    Opcodes.ASM5,
+                    original.access and Opcodes.ACC_VARARGS.inv() or Opcodes.ACC_SYNTHETIC,
+                    original.name + SPECIALIZED_METHOD_SUFFIX,
+                    Type.getMethodDescriptor(Type.getReturnType(original.desc), *newParameterTypes),
+                    null,
+                    original.exceptions.toTypedArray()
+            )
+
+            original.instructions.resetLabels()
+            original.accept(ShiftingVariablesVisitor(node, shift))
+            original.instructions.resetLabels()
+
+            val prologue = InsnList()
+            var newIndex = 0
+            var originalIndex = 0
+            if (!isStatic) {
+                prologue.add(VarInsnNode(Opcodes.ALOAD, 0))
+                prologue.add(VarInsnNode(Opcodes.ASTORE, shift))
+                newIndex = 1
+                originalIndex = 1
+            }
+            for (i in parameterTypes.indices) {
+                prologue.add(VarInsnNode(newParameterTypes[i].getOpcode(Opcodes.ILOAD), newIndex))
+                val primitiveType = primitiveParameterTypes[i]
+                if (primitiveType != null) {
+                    val boxing = boxing(primitiveType)
+                    parameterBoxings[i] = boxing
+                    prologue.add(boxing)
+                }
+                prologue.add(VarInsnNode(parameterTypes[i].getOpcode(Opcodes.ISTORE), shift + originalIndex))
+                newIndex += newParameterTypes[i].size
+                originalIndex += parameterTypes[i].size
+            }
+            node.instructions.insert(prologue)
+        }
+
+        /**
+         * If all values returned by the copy are boxed primitives of the same type, makes it return the unboxed values
+         */
+        fun unboxReturnValues(internalClassName: String): Type? {
+            val insns = node.instructions.toArray()
+            val frames = MethodTransformer.analyze(internalClassName, node, BoxingInterpreter(node.instructions))
+
+            var primitiveReturnType: Type? = null
+            for ((index, insn) in insns.withIndex()) {
+                if (insn.opcode != Opcodes.ARETURN) continue
+                val frame = frames[index] ?: continue
+                val value = frame.getStack(frame.stackSize - 1) as? BoxedBasicValue ?: return null
+                val primitiveType = AsmUtil.unboxPrimitiveTypeOrNull(value.type) ?: return null
+                if (primitiveReturnType != null && primitiveReturnType != primitiveType) return null
+                primitiveReturnType = primitiveType
+            }
+            if (primitiveReturnType == null) return null
+
+            for (insn in insns) {
+                if (insn.opcode != Opcodes.ARETURN) continue
+                val unboxing = unboxing(primitiveReturnType)
+                returnUnboxings.add(unboxing)
+                node.instructions.insertBefore(insn, unboxing)
+                node.instructions.set(insn, InsnNode(primitiveReturnType.getOpcode(Opcodes.IRETURN)))
+            }
+            node.desc = Type.getMethodDescriptor(primitiveReturnType, *Type.getArgumentTypes(node.desc))
+
+            return primitiveReturnType
+        }
+    }
+
+    /**
+     * Copies the body of a method shifting all its variables by [shift] slots. Annotations are not copied.
+     */
+    private class ShiftingVariablesVisitor(delegate: MethodVisitor, private val shift: Int) : MethodVisitor(Opcodes.ASM5, delegate) {
+        override fun visitVarInsn(opcode: Int, `var`: Int) {
+            super.visitVarInsn(opcode, `var` + shift)
+        }
+
+        override fun visitIincInsn(`var`: Int, increment: Int) {
+            super.visitIincInsn(`var` + shift, increment)
+        }
+
+        override fun visitLocalVariable(name: String, desc: String, signature: String?, start: Label, end: Label, index: Int) {
+            super.visitLocalVariable(name, desc, signature, start, end, index + shift)
+        }
+
+        override fun visitMaxs(maxStack: Int, maxLocals: Int) {
+            // The prologue and unboxing of the result need at most two more stack slots
+            super.visitMaxs(maxStack + 2, maxLocals + shift)
+        }
+
+        override fun visitAnnotationDefault(): AnnotationVisitor? = null
+
+        override fun visitAnnotation(desc: String, visible: Boolean): AnnotationVisitor? = null
+
+        override fun visitTypeAnnotation(typeRef: Int, typePath: TypePath?, desc: String, visible: Boolean): AnnotationVisitor? = null
+
+        override fun visitParameterAnnotation(parameter: Int, desc: String, visible: Boolean): AnnotationVisitor? = null
+
+        override fun visitInsnAnnotation(typeRef: Int, typePath: TypePath?, desc: String, visible: Boolean): AnnotationVisitor? = null
+
+        override fun visitTryCatchAnnotation(typeRef: Int, typePath: TypePath?, desc: String, visible: Boolean): AnnotationVisitor? = null
+
+        override fun visitLocalVariableAnnotation(
+                typeRef: Int, typePath: TypePath?,
+                start: Array<out Label>, end: Array<out Label>, index: IntArray, desc: String, visible: Boolean
+        ): AnnotationVisitor? = null
+    }
+
+    private fun boxing(primitiveType: Type): AbstractInsnNode {
+        val boxedType = AsmUtil.boxType(primitiveType)
+        return MethodInsnNode(Opcodes.INVOKESTATIC, boxedType.internalName, "valueOf", Type.getMethodDescriptor(boxedType, primitiveType), false)
+    }
+
+    private fun unboxing(primitiveType: Type): AbstractInsnNode =
+            MethodInsnNode(
+                    Opcodes.INVOKEVIRTUAL, AsmUtil.boxType(primitiveType).internalName, primitiveType.className + "Value",
+                    Type.getMethodDescriptor(primitiveType), false
+            )
+}
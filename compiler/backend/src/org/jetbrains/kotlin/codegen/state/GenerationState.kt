@@ -22,6 +22,7 @@ import com.intellij.psi.PsiElement
 import org.jetbrains.kotlin.builtins.ReflectionTypes
 import org.jetbrains.kotlin.codegen.*
 import org.jetbrains.kotlin.codegen.`when`.MappingsClassesForWhenByEnum
+import org.jetbrains.kotlin.codegen.`when`.SealedClassHierarchies
 import org.jetbrains.kotlin.codegen.binding.CodegenBinding
 import org.jetbrains.kotlin.codegen.context.CodegenContext
 import org.jetbrains.kotlin.codegen.context.RootContext
@@ -126,8 +127,13 @@ class GenerationState @JvmOverloads constructor(
         extraJvmDiagnosticsTrace.bindingContext.diagnostics
     }
 
-    val isJvm8Target: Boolean = configuration.get(JVMConfigurationKeys.JVM_TARGET) == JvmTarget.JVM_1_8
+    val jvmTarget: JvmTarget = configuration.get(JVMConfigurationKeys.JVM_TARGET, JvmTarget.DEFAULT)
+    val isJvm8Target: Boolean = jvmTarget >= JvmTarget.JVM_1_8
+    // String concatenation via java.lang.invoke.StringConcatFactory, available since JDK 9
+    val useInvokeDynamicStringConcat: Boolean = jvmTarget >= JvmTarget.JVM_9
     val generateDefaultImplsForJvm8: Boolean = configuration.getBoolean(JVMConfigurationKeys.INTERFACE_COMPATIBILITY)
+    val useLambdaMetafactory: Boolean = isJvm8Target && configuration.getBoolean(JVMConfigurationKeys.USE_LAMBDA_METAFACTORY)
+    val useCompactNullChecks: Boolean = isJvm8Target && configuration.getBoolean(JVMConfigurationKeys.COMPACT_NULL_CHECKS)
 
     val moduleName: String = moduleName ?: JvmCodegenUtil.getModuleName(module)
     val classBuilderMode: ClassBuilderMode = builderFactory.classBuilderMode
@@ -142,6 +148,8 @@ class GenerationState @JvmOverloads constructor(
     val samWrapperClasses: SamWrapperClasses = SamWrapperClasses(this)
     val inlineCycleReporter: InlineCycleReporter = InlineCycleReporter(diagnostics)
     val mappingsClassesForWhenByEnum: MappingsClassesForWhenByEnum = MappingsClassesForWhenByEnum(this)
+    val sealedClassHierarchies: SealedClassHierarchies? =
+            if (configuration.getBoolean(JVMConfigurationKeys.SEALED_CLASS_TAGS)) SealedClassHierarchies() else null
     val reflectionTypes: ReflectionTypes = ReflectionTypes(module)
     val jvmRuntimeTypes: JvmRuntimeTypes = JvmRuntimeTypes(module)
     val factory: ClassFileFactory
@@ -151,6 +159,7 @@ class GenerationState @JvmOverloads constructor(
 
     //TODO: should be refactored out
     class ForRepl {
+        // Earlier lines used by the compiled line, their instances are passed to the constructor of the line's class
         var earlierScriptsForReplInterpreter: List<ScriptDescriptor>? = null
         var scriptResultFieldName: String? = null
         val shouldGenerateScriptResultValue: Boolean get() = scriptResultFieldName != null
@@ -165,6 +174,8 @@ class GenerationState @JvmOverloads constructor(
 
     val rootContext: CodegenContext<*> = RootContext(this)
 
+    // Bytecode generated for the JVM 9 target doesn't need a newer class file version than 1.8, and keeping it allows
+    // the class files to be read back by ASM (e.g. for inlining)
     val classFileVersion: Int = if (isJvm8Target) Opcodes.V1_8 else Opcodes.V1_6
 
     init {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.when;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.cfg.WhenChecker;
+import org.jetbrains.kotlin.descriptors.ClassDescriptor;
+import org.jetbrains.kotlin.psi.KtClassOrObject;
+import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils;
+import org.jetbrains.kotlin.resolve.DescriptorUtils;
+
+import java.util.*;
+
+import static org.jetbrains.kotlin.resolve.DescriptorUtils.getSuperClassDescriptor;
+import static org.jetbrains.kotlin.resolve.DescriptorUtils.isSealedClass;
+
+/**
+ * Compile-time tags of classes of sealed class hierarchies, which are used to generate `when` over a sealed class as a tableswitch.
+ *
+ * A hierarchy consists of its root (a sealed class without sealed superclasses) and of subclasses of the sealed classes of the hierarchy.
+ * Each class of the hierarchy overrides {@link #TAG_METHOD} returning its tag, other classes (e.g. subclasses of an open class
+ * of the hierarchy) inherit the tag of their superclass. The root also has the {@link #HASH_FIELD} constant which identifies
+ * the assignment of the tags, so that a `when` compiled against other tags (e.g. before an incremental recompilation of the hierarchy)
+ * falls back to instanceof checks.
+ *
+ * Only hierarchies compiled from sources are tagged: a class from another module may be compiled without the tags.
+ */
+public class SealedClassHierarchies {
+    public static final String TAG_METHOD = "$sealedTag";
+    public static final String HASH_FIELD = "$sealedTags";
+
+    private final Map<ClassDescriptor, Hierarchy> hierarchies = new HashMap<ClassDescriptor, Hierarchy>();
+
+    /**
+     * @return the hierarchy which contains the given class, or null if the class is not a part of a tagged hierarchy
+     */
+    @Nullable
+    public Hierarchy getHierarchy(@NotNull ClassDescriptor descriptor) {
+        ClassDescriptor root = getRoot(descriptor);
+        if (root == null || !(DescriptorToSourceUtils.descriptorToDeclaration(root) instanceof KtClassOrObject)) return null;
+
+        Hierarchy hierarchy = hierarchies.get(root);
+        if (hierarchy == null) {
+            hierarchy = new Hierarchy(root);
+            hierarchies.put(root, hierarchy);
+        }
+        return hierarchy.getTag(descriptor) >= 0 ? hierarchy : null;
+    }
+
+    @Nullable
+    private static ClassDescriptor getRoot(@NotNull ClassDescriptor descriptor) {
+        ClassDescriptor superClass = getSuperClassDescriptor(descriptor);
+        if (superClass != null && isSealedClass(superClass)) return getRoot(superClass);
+        if (!isSealedClass(descriptor)) return null;
+
+        // A sealed class inheriting from an open class of another hierarchy would have to change the tags of its subclasses
+        for (ClassDescriptor current = superClass; current != null; current = getSuperClassDescriptor(current)) {
+            if (isSealedClass(current)) return null;
+        }
+        return descriptor;
+    }
+
+    public static class Hierarchy {
+        private final ClassDescriptor root;
+        private final List<ClassDescriptor> classes;
+        private final int hash;
+
+        private Hierarchy(@NotNull ClassDescriptor root) {
+            this.root = root;
+
+            Set<ClassDescriptor> collected = new LinkedHashSet<ClassDescriptor>();
+            collectClasses(root, collected);
+
+            // Tags shouldn't depend on the order of declarations in scopes
+            classes = new ArrayList<ClassDescriptor>(collected);
+            Collections.sort(classes, new Comparator<ClassDescriptor>() {
+                @Override
+                public int compare(ClassDescriptor o1, ClassDescriptor o2) {
+                    return DescriptorUtils.getFqName(o1).asString().compareTo(DescriptorUtils.getFqName(o2).asString());
+                }
+            });
+
+            // A branch checking a sealed class of the hierarchy is compiled to the tags of its subclasses,
+            // so moving a class to another superclass within the hierarchy must change the hash as well
+            StringBuilder names = new StringBuilder();
+            for (ClassDescriptor descriptor : classes) {
+                names.append(DescriptorUtils.getFqName(descriptor).asString());
+                ClassDescriptor superClass = getSuperClassDescriptor(descriptor);
+                if (superClass != null) {
+                    names.append(':').append(DescriptorUtils.getFqName(superClass).asString());
+                }
+                names.append(';');
+            }
+            hash = names.toString().hashCode();
+        }
+
+        private static void collectClasses(@NotNull ClassDescriptor descriptor, @NotNull Set<ClassDescriptor> result) {
+            if (!result.add(descriptor) || !isSealedClass(descriptor)) return;
+
+            for (ClassDescriptor subclass : WhenChecker.getSealedSubclasses(descriptor)) {
+                collectClasses(subclass, result);
+            }
+        }
+
+        @NotNull
+        public ClassDescriptor getRoot() {
+            return root;
+        }
+
+        @NotNull
+        public List<ClassDescriptor> getClasses() {
+            return classes;
+        }
+
+        public int getHash() {
+            return hash;
+        }
+
+        public int getTag(@NotNull ClassDescriptor descriptor) {
+            return classes.indexOf(descriptor.getOriginal());
+        }
+    }
+}
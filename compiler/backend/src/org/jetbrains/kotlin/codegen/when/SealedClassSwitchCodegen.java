@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.when;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.codegen.ExpressionCodegen;
+import org.jetbrains.kotlin.codegen.state.GenerationState;
+import org.jetbrains.kotlin.descriptors.ClassDescriptor;
+import org.jetbrains.kotlin.psi.*;
+import org.jetbrains.kotlin.resolve.BindingContext;
+import org.jetbrains.kotlin.resolve.DescriptorUtils;
+import org.jetbrains.kotlin.types.KotlinType;
+import org.jetbrains.kotlin.types.TypeUtils;
+import org.jetbrains.org.objectweb.asm.Label;
+import org.jetbrains.org.objectweb.asm.Type;
+import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatch of `when` with `is` checks over a sealed class hierarchy by the tag of the subject's class
+ * (see {@link SealedClassHierarchies}). It's generated before the usual chain of conditions, which is executed
+ * if the tags of the hierarchy have been changed after the compilation of the `when`.
+ */
+public class SealedClassSwitchCodegen {
+    private final SealedClassHierarchies.Hierarchy hierarchy;
+    private final Type rootType;
+    private final boolean nullableSubject;
+    // Index of the entry for each tag, -1 if no entry matches
+    private final int[] entryByTag;
+
+    private SealedClassSwitchCodegen(
+            @NotNull SealedClassHierarchies.Hierarchy hierarchy,
+            @NotNull Type rootType,
+            boolean nullableSubject,
+            int[] entryByTag
+    ) {
+        this.hierarchy = hierarchy;
+        this.rootType = rootType;
+        this.nullableSubject = nullableSubject;
+        this.entryByTag = entryByTag;
+    }
+
+    @Nullable
+    public static SealedClassSwitchCodegen createIfApplicable(@NotNull KtWhenExpression expression, @NotNull ExpressionCodegen codegen) {
+        GenerationState state = codegen.getState();
+        SealedClassHierarchies hierarchies = state.getSealedClassHierarchies();
+        KtExpression subject = expression.getSubjectExpression();
+        if (hierarchies == null || subject == null || expression.getEntries().isEmpty()) return null;
+
+        BindingContext bindingContext = codegen.getBindingContext();
+        KotlinType subjectType = bindingContext.getType(subject);
+        ClassDescriptor subjectClass = subjectType != null ? TypeUtils.getClassDescriptor(subjectType) : null;
+        if (subjectClass == null) return null;
+
+        SealedClassHierarchies.Hierarchy hierarchy = hierarchies.getHierarchy(subjectClass);
+        if (hierarchy == null) return null;
+
+        List<List<ClassDescriptor>> entryClasses = new ArrayList<List<ClassDescriptor>>();
+        for (KtWhenEntry entry : expression.getEntries()) {
+            List<ClassDescriptor> classes = new ArrayList<ClassDescriptor>();
+            for (KtWhenCondition condition : entry.getConditions()) {
+                ClassDescriptor checkedClass = getCheckedClass(condition, bindingContext);
+                if (checkedClass == null || hierarchy.getTag(checkedClass) < 0) return null;
+                classes.add(checkedClass);
+            }
+            entryClasses.add(classes);
+        }
+
+        List<ClassDescriptor> taggedClasses = hierarchy.getClasses();
+        int[] entryByTag = new int[taggedClasses.size()];
+        for (int tag = 0; tag < entryByTag.length; tag++) {
+            entryByTag[tag] = findEntry(taggedClasses.get(tag), entryClasses);
+        }
+
+        Type rootType = state.getTypeMapper().mapClass(hierarchy.getRoot());
+        return new SealedClassSwitchCodegen(hierarchy, rootType, subjectType.isMarkedNullable(), entryByTag);
+    }
+
+    @Nullable
+    private static ClassDescriptor getCheckedClass(@NotNull KtWhenCondition condition, @NotNull BindingContext bindingContext) {
+        if (!(condition instanceof KtWhenConditionIsPattern)) return null;
+
+        KtWhenConditionIsPattern isPattern = (KtWhenConditionIsPattern) condition;
+        if (isPattern.isNegated()) return null;
+
+        KotlinType type = bindingContext.get(BindingContext.TYPE, isPattern.getTypeReference());
+        if (type == null || type.isMarkedNullable()) return null;
+
+        return TypeUtils.getClassDescriptor(type);
+    }
+
+    private static int findEntry(@NotNull ClassDescriptor taggedClass, @NotNull List<List<ClassDescriptor>> entryClasses) {
+        for (int i = 0; i < entryClasses.size(); i++) {
+            for (ClassDescriptor checkedClass : entryClasses.get(i)) {
+                if (DescriptorUtils.isSubclass(taggedClass, checkedClass)) return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param entryLabels labels of the entries' bodies
+     * @param defaultLabel the label of the else entry or of the code for no matching entry
+     * @param fallbackLabel the label of the first condition
+     */
+    public void generate(
+            int subjectLocal,
+            @NotNull Type subjectType,
+            @NotNull List<Label> entryLabels,
+            @NotNull Label defaultLabel,
+            @NotNull Label fallbackLabel,
+            @NotNull InstructionAdapter v
+    ) {
+        if (nullableSubject) {
+            v.load(subjectLocal, subjectType);
+            v.ifnull(defaultLabel);
+        }
+
+        v.getstatic(rootType.getInternalName(), SealedClassHierarchies.HASH_FIELD, Type.INT_TYPE.getDescriptor());
+        v.iconst(hierarchy.getHash());
+        v.ificmpne(fallbackLabel);
+
+        Label[] labels = new Label[entryByTag.length];
+        for (int tag = 0; tag < entryByTag.length; tag++) {
+            labels[tag] = entryByTag[tag] >= 0 ? entryLabels.get(entryByTag[tag]) : defaultLabel;
+        }
+
+        v.load(subjectLocal, subjectType);
+        v.invokevirtual(rootType.getInternalName(), SealedClassHierarchies.TAG_METHOD, "()I", false);
+        v.tableswitch(0, labels.length - 1, defaultLabel, labels);
+    }
+}
@@ -68,7 +68,7 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     public String moduleName;
 
     @GradleOption(DefaultValues.JvmTargetVersions.class)
-    @Argument(value = "jvm-target", description = "Target version of the generated JVM bytecode (1.6 or 1.8), default is 1.6")
+    @Argument(value = "jvm-target", description = "Target version of the generated JVM bytecode (1.6, 1.8 or 9), default is 1.6")
     @ValueDescription("<version>")
     public String jvmTarget;
 
@@ -104,6 +104,15 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     @Argument(value = "Xinterface-compatibility", description = "Generate DefaultImpls classes for interfaces in JVM target bytecode version 1.8 for binary compatibility with 1.6")
     public boolean interfaceCompatibility;
 
+    @Argument(value = "Xuse-lambda-metafactory", description = "Generate SAM conversions of lambdas and function values via invokedynamic and LambdaMetafactory in JVM target bytecode version 1.8")
+    public boolean useLambdaMetafactory;
+
+    @Argument(value = "Xsealed-class-tags", description = "Generate 'when' over sealed class hierarchies as a tableswitch on tags of the subclasses")
+    public boolean sealedClassTags;
+
+    @Argument(value = "Xcompact-null-checks", description = "Generate null checks of parameters and platform type expressions as inline branches in JVM target bytecode version 1.8 (requires the Kotlin runtime of the same version)")
+    public boolean compactNullChecks;
+
     // Paths to output directories for friend modules.
     public String[] friendPaths;
 
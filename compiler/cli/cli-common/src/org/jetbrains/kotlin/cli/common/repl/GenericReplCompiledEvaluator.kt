@@ -32,6 +32,10 @@ open class GenericReplCompiledEvaluator(baseClasspath: Iterable<File>, baseClass
 
     private val compiledLoadedClassesHistory = arrayListOf<Pair<ReplCodeLine, ClassWithInstance>>()
 
+    // A line is constructed only with instances of the earlier lines it uses, which are looked up here by the constructor parameter types.
+    // Instances of all lines are kept for the whole session, because any later line may use the members of any earlier one
+    private val instancesByClass = hashMapOf<Class<*>, Any>()
+
     override fun eval(codeLine: ReplCodeLine, history: Iterable<ReplCodeLine>, compiledClasses: List<CompiledClassData>, hasResult: Boolean, newClasspath: List<File>): ReplEvalResult {
 
         checkAndUpdateReplHistoryCollection(compiledLoadedClassesHistory, history)?.let {
@@ -52,13 +56,12 @@ open class GenericReplCompiledEvaluator(baseClasspath: Iterable<File>, baseClass
 
         val scriptClass = classLoaderLock.read { classLoader.loadClass("Line${codeLine.no}") }
 
-        val constructorParams: Array<Class<*>> =
-                (compiledLoadedClassesHistory.map { it.second.klass } +
-                 (scriptArgs?.mapIndexed { i, it -> scriptArgsTypes?.getOrNull(i) ?: it?.javaClass ?: Any::class.java } ?: emptyList())
-                ).toTypedArray()
-        val constructorArgs: Array<Any?> = (compiledLoadedClassesHistory.map { it.second.instance } + scriptArgs.orEmpty()).toTypedArray()
+        val scriptInstanceConstructor = scriptClass.constructors.single()
+        val earlierClasses = scriptInstanceConstructor.parameterTypes.dropLast(scriptArgs?.size ?: 0)
+        val constructorArgs: Array<Any?> =
+                (earlierClasses.map { instancesByClass[it] ?: error("No instance of the earlier line ${it.name}") } +
+                 scriptArgs.orEmpty()).toTypedArray()
 
-        val scriptInstanceConstructor = scriptClass.getConstructor(*constructorParams)
         val scriptInstance =
                 try {
                     evalWithIO { scriptInstanceConstructor.newInstance(*constructorArgs) }
@@ -69,6 +72,7 @@ open class GenericReplCompiledEvaluator(baseClasspath: Iterable<File>, baseClass
                 }
 
         compiledLoadedClassesHistory.add(codeLine to ClassWithInstance(scriptClass, scriptInstance))
+        instancesByClass[scriptClass] = scriptInstance
 
         val rvField = scriptClass.getDeclaredField(SCRIPT_RESULT_FIELD_NAME).apply { isAccessible = true }
         val rv: Any? = rvField.get(scriptInstance)
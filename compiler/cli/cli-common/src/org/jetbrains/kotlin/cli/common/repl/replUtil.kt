@@ -19,6 +19,13 @@ package org.jetbrains.kotlin.cli.common.repl
 import com.google.common.base.Throwables
 
 fun <T> checkAndUpdateReplHistoryCollection(col: MutableList<Pair<ReplCodeLine, T>>, baseHistory: Iterable<ReplCodeLine>): Int? {
+    // Lines are numbered uniquely within a session, so a history list matches if its last line is found at the same position,
+    // which avoids comparing the whole history on each line
+    if (baseHistory is List<ReplCodeLine>) {
+        if (baseHistory.isEmpty()) return null
+        if (baseHistory.size <= col.size && col[baseHistory.size - 1].first == baseHistory.last()) return null
+    }
+
     val baseHistoryIt = baseHistory.iterator()
     var idx = 0
     while (baseHistoryIt.hasNext()) {
@@ -141,8 +141,8 @@ class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
 
         if (arguments.interfaceCompatibility) {
             val target = configuration.get(JVMConfigurationKeys.JVM_TARGET)
-            if (target != JvmTarget.JVM_1_8) {
-                val errorMessage = "The -Xinterface-compatibility option has effect only for JVM target bytecode version 1.8."
+            if (target == null || target < JvmTarget.JVM_1_8) {
+                val errorMessage = "The -Xinterface-compatibility option has effect only for JVM target bytecode version 1.8 or higher."
                 messageCollector.report(CompilerMessageSeverity.WARNING, errorMessage, CompilerMessageLocation.NO_LOCATION)
             }
             else {
@@ -150,6 +150,28 @@ class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
             }
         }
 
+        if (arguments.useLambdaMetafactory) {
+            val target = configuration.get(JVMConfigurationKeys.JVM_TARGET)
+            if (target == null || target < JvmTarget.JVM_1_8) {
+                val errorMessage = "The -Xuse-lambda-metafactory option has effect only for JVM target bytecode version 1.8 or higher."
+                messageCollector.report(CompilerMessageSeverity.WARNING, errorMessage, CompilerMessageLocation.NO_LOCATION)
+            }
+            else {
+                configuration.put(JVMConfigurationKeys.USE_LAMBDA_METAFACTORY, true)
+            }
+        }
+
+        if (arguments.compactNullChecks) {
+            val target = configuration.get(JVMConfigurationKeys.JVM_TARGET)
+            if (target == null || target < JvmTarget.JVM_1_8) {
+                val errorMessage = "The -Xcompact-null-checks option has effect only for JVM target bytecode version 1.8 or higher."
+                messageCollector.report(CompilerMessageSeverity.WARNING, errorMessage, CompilerMessageLocation.NO_LOCATION)
+            }
+            else {
+                configuration.put(JVMConfigurationKeys.COMPACT_NULL_CHECKS, true)
+            }
+        }
+
         putAdvancedOptions(configuration, arguments)
 
         messageCollector.report(CompilerMessageSeverity.LOGGING, "Configuring the compilation environment", CompilerMessageLocation.NO_LOCATION)
@@ -333,6 +355,7 @@ class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
             configuration.put(CLIConfigurationKeys.ALLOW_KOTLIN_PACKAGE, arguments.allowKotlinPackage)
             configuration.put(CLIConfigurationKeys.REPORT_PERF, arguments.reportPerf)
             configuration.put(JVMConfigurationKeys.USE_SINGLE_MODULE, arguments.singleModule)
+            configuration.put(JVMConfigurationKeys.SEALED_CLASS_TAGS, arguments.sealedClassTags)
 
             arguments.declarationsOutputPath?.let { configuration.put(JVMConfigurationKeys.DECLARATIONS_JSON_PATH, it) }
         }
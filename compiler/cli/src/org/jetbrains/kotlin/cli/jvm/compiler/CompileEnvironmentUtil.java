@@ -34,7 +34,6 @@ import kotlin.jvm.functions.Function1;
 import kotlin.sequences.SequencesKt;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.kotlin.backend.common.output.OutputFile;
 import org.jetbrains.kotlin.backend.common.output.OutputFileCollection;
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
 import org.jetbrains.kotlin.cli.common.modules.ModuleScriptData;
@@ -51,7 +50,8 @@ import java.io.*;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.jar.*;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 
 import static org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation.NO_LOCATION;
 import static org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity.ERROR;
@@ -76,6 +76,7 @@ public class CompileEnvironmentUtil {
 
     // TODO: includeRuntime should be not a flag but a path to runtime
     private static void doWriteToJar(OutputFileCollection outputFiles, OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime) {
+        ParallelJarWriter writer = new ParallelJarWriter(fos);
         try {
             Manifest manifest = new Manifest();
             Attributes mainAttributes = manifest.getMainAttributes();
@@ -84,19 +85,19 @@ public class CompileEnvironmentUtil {
             if (mainClass != null) {
                 mainAttributes.putValue("Main-Class", mainClass.asString());
             }
-            JarOutputStream stream = new JarOutputStream(fos, manifest);
-            for (OutputFile outputFile : outputFiles.asList()) {
-                stream.putNextEntry(new JarEntry(outputFile.getRelativePath()));
-                stream.write(outputFile.asByteArray());
-            }
+            writer.writeManifest(manifest);
+            writer.writeOutputFiles(outputFiles.asList());
             if (includeRuntime) {
-                writeRuntimeToJar(stream);
+                writeRuntimeToJar(writer);
             }
-            stream.finish();
+            writer.finish();
         }
         catch (IOException e) {
             throw new CompileEnvironmentException("Failed to generate jar file", e);
         }
+        finally {
+            writer.close();
+        }
     }
 
     public static void writeToJar(File jarPath, boolean jarRuntime, FqName mainClass, OutputFileCollection outputFiles) {
@@ -117,7 +118,7 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    private static void writeRuntimeToJar(JarOutputStream stream) throws IOException {
+    private static void writeRuntimeToJar(ParallelJarWriter writer) throws IOException {
         File runtimePath = PathUtil.getKotlinPathsForCompiler().getRuntimePath();
         if (!runtimePath.exists()) {
             throw new CompileEnvironmentException("Couldn't find runtime library");
@@ -127,26 +128,7 @@ public class CompileEnvironmentUtil {
             throw new CompileEnvironmentException("Couldn't find script runtime library");
         }
 
-        copyJarImpl(stream, runtimePath);
-    }
-
-    private static void copyJarImpl(JarOutputStream stream, File jarPath) throws IOException {
-        JarInputStream jis = new JarInputStream(new FileInputStream(jarPath));
-        try {
-            while (true) {
-                JarEntry e = jis.getNextJarEntry();
-                if (e == null) {
-                    break;
-                }
-                if (FileUtilRt.extensionEquals(e.getName(), "class")) {
-                    stream.putNextEntry(e);
-                    FileUtil.copy(jis, stream);
-                }
-            }
-        }
-        finally {
-            jis.close();
-        }
+        writer.copyClassFiles(runtimePath);
     }
 
     @NotNull
@@ -16,62 +16,78 @@
 
 package org.jetbrains.kotlin.cli.jvm.compiler
 
+import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.search.GlobalSearchScope
-import com.intellij.util.SmartList
 import org.jetbrains.kotlin.cli.jvm.config.JvmClasspathRoot
 import org.jetbrains.kotlin.config.JVMConfigurationKeys
 import org.jetbrains.kotlin.descriptors.PackagePartProvider
 import org.jetbrains.kotlin.load.kotlin.ModuleMapping
+import org.jetbrains.kotlin.utils.JarEntryStamp
 import java.io.EOFException
+import java.util.*
 
 class JvmPackagePartProvider(
         private val env: KotlinCoreEnvironment,
         private val scope: GlobalSearchScope
 ) : PackagePartProvider {
-    private val notLoadedRoots by lazy(LazyThreadSafetyMode.NONE) {
-        env.configuration.getList(JVMConfigurationKeys.CONTENT_ROOTS)
+    // Package FQ name -> names of the package parts from module mappings of all roots in the scope.
+    // Building it once is cheaper than looking for the package directory in each root on each request
+    private val packageParts: Map<String, List<String>> by lazy {
+        val result = LinkedHashMap<String, MutableSet<String>>()
+
+        val roots = env.configuration.getList(JVMConfigurationKeys.CONTENT_ROOTS)
                 .filterIsInstance<JvmClasspathRoot>()
                 .mapNotNull { env.contentRootToVirtualFile(it) }
-                .filter { it in scope && it.findChild("META-INF") != null }
-                .toMutableList()
-    }
+                .filter { it in scope }
 
-    private val loadedModules: MutableList<ModuleMapping> = SmartList()
+        for (root in roots) {
+            val metaInf = root.findChild("META-INF") ?: continue
+            for (file in metaInf.children) {
+                if (!file.name.endsWith(ModuleMapping.MAPPING_FILE_EXT)) continue
 
-    @Synchronized
-    override fun findPackageParts(packageFqName: String): List<String> {
-        processNotLoadedRelevantRoots(packageFqName)
+                for ((packageFqName, packageParts) in SharedModuleMappings.INSTANCE.getModuleMapping(file).packageFqName2Parts) {
+                    result.getOrPut(packageFqName) { linkedSetOf() }.addAll(packageParts.parts)
+                }
+            }
+        }
 
-        return loadedModules.flatMap { it.findPackageParts(packageFqName)?.parts ?: emptySet<String>() }.distinct()
+        result.mapValues { it.value.toList() }
     }
 
-    private fun processNotLoadedRelevantRoots(packageFqName: String) {
-        if (notLoadedRoots.isEmpty()) return
+    override fun findPackageParts(packageFqName: String): List<String> =
+            packageParts[packageFqName] ?: emptyList()
+}
 
-        val pathParts = packageFqName.split('.')
+/**
+ * Module mappings from library jars. [INSTANCE] is shared between all compilations in the process (e.g. in the compile daemon).
+ * Like in [org.jetbrains.kotlin.codegen.inline.SharedInlineCache], entries are keyed by the [JarEntryStamp] of the file,
+ * and mappings outside of jars are not cached.
+ */
+class SharedModuleMappings(private val maxSize: Int) {
+    private val mappings = object : LinkedHashMap<JarEntryStamp, ModuleMapping>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<JarEntryStamp, ModuleMapping>?) = size > maxSize
+    }
 
-        val relevantRoots = notLoadedRoots.filter {
-            //filter all roots by package path existing
-            pathParts.fold(it) {
-                parent, part ->
-                if (part.isEmpty()) parent
-                else parent.findChild(part) ?: return@filter false
-            }
-            true
-        }
-        notLoadedRoots.removeAll(relevantRoots)
+    fun getModuleMapping(file: VirtualFile): ModuleMapping {
+        val key = JarEntryStamp.create(file) ?: return loadModuleMapping(file)
+
+        synchronized(mappings) { mappings[key] }?.let { return it }
 
-        loadedModules.addAll(relevantRoots.mapNotNull {
-            it.findChild("META-INF")
-        }.flatMap {
-            it.children.filter { it.name.endsWith(ModuleMapping.MAPPING_FILE_EXT) }
-        }.map { file ->
+        val mapping = loadModuleMapping(file)
+        synchronized(mappings) { mappings[key] = mapping }
+        return mapping
+    }
+
+    private fun loadModuleMapping(file: VirtualFile): ModuleMapping =
             try {
                 ModuleMapping.create(file.contentsToByteArray(), file.toString())
             }
             catch (e: EOFException) {
-                throw RuntimeException("Error on reading package parts for '$packageFqName' package in '$file', roots: $notLoadedRoots", e)
+                throw RuntimeException("Error on reading package parts from '$file'", e)
             }
-        })
+
+    companion object {
+        @JvmField
+        val INSTANCE = SharedModuleMappings(1000)
     }
 }
@@ -29,6 +29,7 @@ import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.analyzer.AnalysisResult
 import org.jetbrains.kotlin.asJava.FilteredJvmDiagnostics
 import org.jetbrains.kotlin.backend.common.output.OutputFileCollection
+import org.jetbrains.kotlin.backend.common.output.SimpleOutputBinaryFile
 import org.jetbrains.kotlin.backend.common.output.SimpleOutputFileCollection
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
 import org.jetbrains.kotlin.cli.common.ExitCode
@@ -60,11 +61,13 @@ import org.jetbrains.kotlin.resolve.jvm.TopDownAnalyzerFacadeForJVM
 import org.jetbrains.kotlin.util.PerformanceCounter
 import org.jetbrains.kotlin.utils.KotlinPaths
 import org.jetbrains.kotlin.utils.PathUtil
-import org.jetbrains.kotlin.utils.newLinkedHashMapWithExpectedSize
 import java.io.File
 import java.io.IOException
 import java.lang.reflect.InvocationTargetException
 import java.net.URLClassLoader
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import java.util.concurrent.TimeUnit
 import java.util.jar.Attributes
 
@@ -83,7 +86,8 @@ object KotlinToJVMBytecodeCompiler {
     private fun writeOutput(
             configuration: CompilerConfiguration,
             outputFiles: OutputFileCollection,
-            mainClass: FqName?
+            mainClass: FqName?,
+            messageCollector: MessageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
     ) {
         val jarPath = configuration.get(JVMConfigurationKeys.OUTPUT_JAR)
         if (jarPath != null) {
@@ -93,10 +97,28 @@ object KotlinToJVMBytecodeCompiler {
         }
 
         val outputDir = configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) ?: File(".")
-        val messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
         outputFiles.writeAll(outputDir, messageCollector)
     }
 
+    // Generates the bytes of all output files and reports them, so that the result can be written on another thread
+    // without accessing the binding context, PSI or the message collector, which are not thread-safe
+    private fun prepareOutputForWriting(state: GenerationState): OutputFileCollection {
+        val configuration = state.configuration
+        val messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+        val outputDir = configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) ?: File(".")
+        val reportOutput = configuration.get(JVMConfigurationKeys.OUTPUT_JAR) == null
+
+        val outputFiles = state.factory.asList().map { file ->
+            if (reportOutput) {
+                messageCollector.report(CompilerMessageSeverity.OUTPUT,
+                                        OutputMessageUtil.formatOutputMessage(file.sourceFiles, File(outputDir, file.relativePath)),
+                                        CompilerMessageLocation.NO_LOCATION)
+            }
+            SimpleOutputBinaryFile(file.sourceFiles, file.relativePath, file.asByteArray())
+        }
+        return SimpleOutputFileCollection(outputFiles)
+    }
+
     private fun createOutputFilesFlushingCallbackIfPossible(configuration: CompilerConfiguration): GenerationStateEventCallback {
         if (configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) == null) {
             return GenerationStateEventCallback.DO_NOTHING
@@ -135,31 +157,53 @@ object KotlinToJVMBytecodeCompiler {
 
         result.throwIfError()
 
-        val outputs = newLinkedHashMapWithExpectedSize<Module, GenerationState>(chunk.size)
+        // Each module's output is written on a separate thread while the next module is being generated. Only the bytes
+        // of the output are passed to that thread, and the generation state is released right away, so that the states
+        // of the whole chunk are never held in memory at the same time
+        val writer = Executors.newSingleThreadExecutor()
+        var pendingWrite: Future<*>? = null
+        try {
+            for (module in chunk) {
+                ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
+                val ktFiles = CompileEnvironmentUtil.getKtFiles(
+                        environment.project, getAbsolutePaths(directory, module), projectConfiguration
+                ) { path -> throw IllegalStateException("Should have been checked before: $path") }
+                if (!checkKotlinPackageUsage(environment, ktFiles)) return false
 
-        for (module in chunk) {
-            ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
-            val ktFiles = CompileEnvironmentUtil.getKtFiles(
-                    environment.project, getAbsolutePaths(directory, module), projectConfiguration
-            ) { path -> throw IllegalStateException("Should have been checked before: $path") }
-            if (!checkKotlinPackageUsage(environment, ktFiles)) return false
-
-            val moduleConfiguration = projectConfiguration.copy().apply {
-                put(JVMConfigurationKeys.OUTPUT_DIRECTORY, File(module.getOutputDirectory()))
-            }
+                val moduleConfiguration = projectConfiguration.copy().apply {
+                    put(JVMConfigurationKeys.OUTPUT_DIRECTORY, File(module.getOutputDirectory()))
+                }
 
-            outputs[module] = generate(environment, moduleConfiguration, result, ktFiles, module)
-        }
+                val state = generate(environment, moduleConfiguration, result, ktFiles, module)
+                val outputFiles = try {
+                    prepareOutputForWriting(state)
+                }
+                finally {
+                    state.destroy()
+                }
 
-        try {
-            for ((module, state) in outputs) {
+                pendingWrite?.getOrRethrow()
                 ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
-                writeOutput(state.configuration, state.factory, null)
+                pendingWrite = writer.submit(Runnable {
+                    writeOutput(moduleConfiguration, outputFiles, null, MessageCollector.NONE)
+                })
             }
+
+            pendingWrite?.getOrRethrow()
             return true
         }
         finally {
-            outputs.values.forEach(GenerationState::destroy)
+            writer.shutdown()
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    private fun Future<*>.getOrRethrow() {
+        try {
+            get()
+        }
+        catch (e: ExecutionException) {
+            throw e.cause ?: e
         }
     }
 
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import com.intellij.openapi.util.io.FileUtilRt
+import org.jetbrains.kotlin.backend.common.output.OutputFile
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.io.OutputStream
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.jar.JarFile
+import java.util.jar.Manifest
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
+
+/**
+ * Writes a jar file, deflating entries on a thread pool instead of sequentially as [java.util.jar.JarOutputStream] does.
+ * Class files copied from other jars (e.g. the runtime for `-include-runtime`) are transferred in their compressed form.
+ * Zip64 records are written only when the archive has too many entries or is too large for the plain format.
+ */
+class ParallelJarWriter(private val output: OutputStream) : Closeable {
+    private class CentralDirectoryEntry(val name: ByteArray, val method: Int, val crc: Long, val compressedSize: Long, val size: Long, val offset: Long)
+
+    private class CompressedEntry(val name: String, val method: Int, val crc: Long, val size: Long, val data: ByteArray)
+
+    private val threadCount = Runtime.getRuntime().availableProcessors()
+    private val executor: ExecutorService = Executors.newFixedThreadPool(threadCount)
+    private val centralDirectory = ArrayList<CentralDirectoryEntry>()
+    private val names = HashSet<String>()
+    private val dosTime = toDosTime(System.currentTimeMillis())
+    private var offset = 0L
+
+    @Throws(IOException::class)
+    fun writeManifest(manifest: Manifest) {
+        val bytes = ByteArrayOutputStream().apply { manifest.write(this) }.toByteArray()
+        writeEntry(deflate(JarFile.MANIFEST_NAME, bytes))
+    }
+
+    @Throws(IOException::class)
+    fun writeOutputFiles(outputFiles: List<OutputFile>) {
+        // Bytes are obtained on the calling thread because output files are not guaranteed to be thread-safe
+        writeAll(outputFiles.asSequence().map { outputFile ->
+            val name = outputFile.relativePath
+            val bytes = outputFile.asByteArray()
+            Callable { deflate(name, bytes) }
+        })
+    }
+
+    @Throws(IOException::class)
+    fun copyClassFiles(jar: File) {
+        val entries = readCompressedEntries(jar.readBytes())?.filter { FileUtilRt.extensionEquals(it.name, "class") }
+        if (entries != null) {
+            entries.forEach { writeEntry(it) }
+            return
+        }
+
+        // The archive uses features not supported by the raw copying (e.g. zip64), so the entries are recompressed instead
+        ZipFile(jar).use { zipFile ->
+            writeAll(zipFile.entries().iterator().asSequence()
+                             .filter { !it.isDirectory && FileUtilRt.extensionEquals(it.name, "class") }
+                             .map { entry ->
+                                 val bytes = zipFile.getInputStream(entry).use { it.readBytes() }
+                                 Callable { deflate(entry.name, bytes) }
+                             })
+        }
+    }
+
+    @Throws(IOException::class)
+    fun finish() {
+        val buffer = ByteArrayOutputStream()
+        for (entry in centralDirectory) {
+            val isZip64 = entry.offset >= ZIP64_MAGIC
+            buffer.writeInt(CENTRAL_HEADER_SIGNATURE)
+            buffer.writeShort(if (isZip64) ZIP64_VERSION else VERSION)
+            buffer.writeShort(if (isZip64) ZIP64_VERSION else VERSION)
+            buffer.writeShort(UTF8_FLAG)
+            buffer.writeShort(entry.method)
+            buffer.writeInt(dosTime)
+            buffer.writeInt(entry.crc)
+            buffer.writeInt(entry.compressedSize)
+            buffer.writeInt(entry.size)
+            buffer.writeShort(entry.name.size)
+            buffer.writeShort(if (isZip64) ZIP64_EXTRA_SIZE else 0) // extra field length
+            buffer.writeShort(0) // comment length
+            buffer.writeShort(0) // disk number
+            buffer.writeShort(0) // internal attributes
+            buffer.writeInt(0) // external attributes
+            buffer.writeInt(if (isZip64) ZIP64_MAGIC else entry.offset)
+            buffer.write(entry.name)
+            if (isZip64) {
+                // Sizes of entries always fit into the plain header, so only the offset is written to the extra field
+                buffer.writeShort(ZIP64_EXTRA_ID)
+                buffer.writeShort(ZIP64_EXTRA_SIZE - 4)
+                buffer.writeLong(entry.offset)
+            }
+        }
+        val centralDirectorySize = buffer.size().toLong()
+        val count = centralDirectory.size.toLong()
+        val isZip64 = count >= 0xFFFF || offset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC
+
+        if (isZip64) {
+            val zip64EndOffset = offset + centralDirectorySize
+            buffer.writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+            buffer.writeLong((ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE - 12).toLong())
+            buffer.writeShort(ZIP64_VERSION)
+            buffer.writeShort(ZIP64_VERSION)
+            buffer.writeInt(0) // disk number
+            buffer.writeInt(0) // disk with the central directory
+            buffer.writeLong(count)
+            buffer.writeLong(count)
+            buffer.writeLong(centralDirectorySize)
+            buffer.writeLong(offset)
+
+            buffer.writeInt(ZIP64_LOCATOR_SIGNATURE)
+            buffer.writeInt(0) // disk with the zip64 end of central directory
+            buffer.writeLong(zip64EndOffset)
+            buffer.writeInt(1) // total number of disks
+        }
+
+        buffer.writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+        buffer.writeShort(0) // disk number
+        buffer.writeShort(0) // disk with the central directory
+        buffer.writeShort(if (isZip64) 0xFFFF else count.toInt())
+        buffer.writeShort(if (isZip64) 0xFFFF else count.toInt())
+        buffer.writeInt(if (isZip64) ZIP64_MAGIC else centralDirectorySize)
+        buffer.writeInt(if (isZip64) ZIP64_MAGIC else offset)
+        buffer.writeShort(0) // comment length
+
+        buffer.writeTo(output)
+        output.flush()
+    }
+
+    override fun close() {
+        executor.shutdownNow()
+    }
+
+    // Only a few entries are compressed ahead of the one being written, so that the whole jar is never kept in memory
+    private fun writeAll(tasks: Sequence<Callable<CompressedEntry>>) {
+        val pending = ArrayDeque<Future<CompressedEntry>>()
+        for (task in tasks) {
+            if (pending.size >= threadCount * 2) {
+                writeEntry(pending.removeFirst().await())
+            }
+            pending.addLast(executor.submit(task))
+        }
+        while (pending.isNotEmpty()) {
+            writeEntry(pending.removeFirst().await())
+        }
+    }
+
+    private fun Future<CompressedEntry>.await(): CompressedEntry {
+        try {
+            return get()
+        }
+        catch (e: ExecutionException) {
+            val cause = e.cause
+            throw cause as? IOException ?: IOException("Failed to compress jar entry", cause)
+        }
+        catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            throw InterruptedIOException("Interrupted while writing jar file")
+        }
+    }
+
+    private fun writeEntry(entry: CompressedEntry) {
+        if (!names.add(entry.name)) {
+            throw ZipException("duplicate entry: ${entry.name}")
+        }
+
+        val name = entry.name.toByteArray(Charsets.UTF_8)
+        val header = ByteArrayOutputStream(LOCAL_HEADER_SIZE + name.size)
+        header.writeInt(LOCAL_HEADER_SIGNATURE)
+        header.writeShort(VERSION)
+        header.writeShort(UTF8_FLAG)
+        header.writeShort(entry.method)
+        header.writeInt(dosTime)
+        header.writeInt(entry.crc)
+        header.writeInt(entry.data.size.toLong())
+        header.writeInt(entry.size)
+        header.writeShort(name.size)
+        header.writeShort(0) // extra field length
+        header.write(name)
+
+        header.writeTo(output)
+        output.write(entry.data)
+
+        centralDirectory.add(CentralDirectoryEntry(name, entry.method, entry.crc, entry.data.size.toLong(), entry.size, offset))
+        offset += header.size() + entry.data.size
+    }
+
+    companion object {
+        private const val LOCAL_HEADER_SIGNATURE = 0x04034b50L
+        private const val CENTRAL_HEADER_SIGNATURE = 0x02014b50L
+        private const val END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50L
+        private const val ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50L
+        private const val ZIP64_LOCATOR_SIGNATURE = 0x07064b50L
+
+        private const val LOCAL_HEADER_SIZE = 30
+        private const val CENTRAL_HEADER_SIZE = 46
+        private const val END_OF_CENTRAL_DIRECTORY_SIZE = 22
+        private const val ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56
+
+        private const val VERSION = 20
+        private const val ZIP64_VERSION = 45
+        private const val UTF8_FLAG = 0x800
+        private const val ENCRYPTED_FLAG = 0x1
+        private const val ZIP64_MAGIC = 0xFFFFFFFFL
+        private const val ZIP64_EXTRA_ID = 0x0001
+        private const val ZIP64_EXTRA_SIZE = 12
+
+        private fun deflate(name: String, bytes: ByteArray): CompressedEntry {
+            val crc = CRC32().apply { update(bytes) }.value
+            val deflater = Deflater(Deflater.DEFAULT_COMPRESSION, true)
+            try {
+                deflater.setInput(bytes)
+                deflater.finish()
+                val result = ByteArrayOutputStream(bytes.size / 2 + 64)
+                val buffer = ByteArray(8192)
+                while (!deflater.finished()) {
+                    result.write(buffer, 0, deflater.deflate(buffer))
+                }
+                return CompressedEntry(name, ZipEntry.DEFLATED, crc, bytes.size.toLong(), result.toByteArray())
+            }
+            finally {
+                deflater.end()
+            }
+        }
+
+        /**
+         * Reads the compressed contents of all entries of the given archive as is.
+         * Returns null if the archive uses features which are not supported here: zip64, encryption or compression methods
+         * other than STORED and DEFLATED.
+         */
+        private fun readCompressedEntries(bytes: ByteArray): List<CompressedEntry>? {
+            var end = bytes.size - END_OF_CENTRAL_DIRECTORY_SIZE
+            val endLimit = maxOf(0, end - 0xFFFF)
+            while (end >= endLimit && bytes.readInt(end) != END_OF_CENTRAL_DIRECTORY_SIGNATURE) end--
+            if (end < endLimit) return null
+
+            val count = bytes.readShort(end + 10)
+            val centralDirectoryOffset = bytes.readInt(end + 16)
+            if (count == 0xFFFF || centralDirectoryOffset >= end) return null
+
+            val result = ArrayList<CompressedEntry>(count)
+            var position = centralDirectoryOffset.toInt()
+            for (i in 0..count - 1) {
+                if (position + CENTRAL_HEADER_SIZE > end || bytes.readInt(position) != CENTRAL_HEADER_SIGNATURE) return null
+
+                val flags = bytes.readShort(position + 8)
+                val method = bytes.readShort(position + 10)
+                val crc = bytes.readInt(position + 16)
+                val compressedSize = bytes.readInt(position + 20)
+                val size = bytes.readInt(position + 24)
+                val nameLength = bytes.readShort(position + 28)
+                val extraLength = bytes.readShort(position + 30)
+                val commentLength = bytes.readShort(position + 32)
+                val localHeaderOffset = bytes.readInt(position + 42)
+
+                if (flags and ENCRYPTED_FLAG != 0) return null
+                if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) return null
+                if (compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) return null
+
+                val name = String(bytes, position + CENTRAL_HEADER_SIZE, nameLength, Charsets.UTF_8)
+
+                val local = localHeaderOffset.toInt()
+                if (local + LOCAL_HEADER_SIZE > end || bytes.readInt(local) != LOCAL_HEADER_SIGNATURE) return null
+                val dataStart = local + LOCAL_HEADER_SIZE + bytes.readShort(local + 26) + bytes.readShort(local + 28)
+                val dataEnd = dataStart + compressedSize
+                if (dataEnd > centralDirectoryOffset) return null
+
+                if (!name.endsWith("/")) {
+                    result.add(CompressedEntry(name, method, crc, size, bytes.copyOfRange(dataStart, dataEnd.toInt())))
+                }
+
+                position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength
+            }
+            return result
+        }
+
+        private fun toDosTime(millis: Long): Long {
+            val calendar = Calendar.getInstance().apply { timeInMillis = millis }
+            val year = calendar.get(Calendar.YEAR)
+            if (year < 1980) return (1L shl 21) or (1L shl 16)
+            return ((year - 1980).toLong() shl 25) or
+                   ((calendar.get(Calendar.MONTH) + 1).toLong() shl 21) or
+                   (calendar.get(Calendar.DAY_OF_MONTH).toLong() shl 16) or
+                   (calendar.get(Calendar.HOUR_OF_DAY).toLong() shl 11) or
+                   (calendar.get(Calendar.MINUTE).toLong() shl 5) or
+                   (calendar.get(Calendar.SECOND).toLong() shr 1)
+        }
+
+        private fun ByteArray.readShort(index: Int): Int =
+                (this[index].toInt() and 0xFF) or ((this[index + 1].toInt() and 0xFF) shl 8)
+
+        private fun ByteArray.readInt(index: Int): Long =
+                readShort(index).toLong() or (readShort(index + 2).toLong() shl 16)
+
+        private fun ByteArrayOutputStream.writeShort(value: Int) {
+            write(value and 0xFF)
+            write((value ushr 8) and 0xFF)
+        }
+
+        private fun ByteArrayOutputStream.writeInt(value: Long) {
+            writeShort((value and 0xFFFF).toInt())
+            writeShort(((value ushr 16) and 0xFFFF).toInt())
+        }
+
+        private fun ByteArrayOutputStream.writeLong(value: Long) {
+            writeInt(value and 0xFFFFFFFFL)
+            writeInt(value ushr 32)
+        }
+    }
+}
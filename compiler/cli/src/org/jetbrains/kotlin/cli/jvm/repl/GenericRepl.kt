@@ -151,7 +151,7 @@ open class GenericReplCompiler(
                 compilerConfiguration
         )
         state.replSpecific.scriptResultFieldName = SCRIPT_RESULT_FIELD_NAME
-        state.replSpecific.earlierScriptsForReplInterpreter = descriptorsHistory.map { it.second }
+        state.replSpecific.earlierScriptsForReplInterpreter = collectUsedEarlierScripts(psiFile.script!!, analyzerEngine.trace.bindingContext)
         state.beforeCompile()
         KotlinCodegenFacade.generatePackage(
                 state,
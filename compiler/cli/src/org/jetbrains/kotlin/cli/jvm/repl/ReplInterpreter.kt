@@ -52,7 +52,7 @@ class ReplInterpreter(
 ): ReplConfiguration by replConfiguration {
     private var lineNumber = 0
 
-    private val earlierLines = arrayListOf<EarlierLine>()
+    private val earlierLines = hashMapOf<ScriptDescriptor, EarlierLine>()
     private val previousIncompleteLines = arrayListOf<String>()
     private val classLoader: ReplClassLoader = run {
         val classpath = configuration.jvmClasspathRoots.map { it.toURI().toURL() }
@@ -115,7 +115,10 @@ class ReplInterpreter(
                 listOf(psiFile), 
                 configuration)
 
-        compileScript(psiFile.script!!, earlierLines.map(EarlierLine::getScriptDescriptor), state, CompilationErrorHandler.THROW_EXCEPTION)
+        val usedEarlierLines = collectUsedEarlierScripts(psiFile.script!!, analyzerEngine.trace.bindingContext).map {
+            earlierLines[it] ?: error("Unregistered script: $it")
+        }
+        compileScript(psiFile.script!!, usedEarlierLines.map(EarlierLine::getScriptDescriptor), state, CompilationErrorHandler.THROW_EXCEPTION)
 
         for (outputFile in state.factory.asList()) {
             if (outputFile.relativePath.endsWith(".class")) {
@@ -127,8 +130,8 @@ class ReplInterpreter(
         try {
             val scriptClass = classLoader.loadClass("Line$lineNumber")
 
-            val constructorParams = earlierLines.map(EarlierLine::getScriptClass).toTypedArray()
-            val constructorArgs = earlierLines.map(EarlierLine::getScriptInstance).toTypedArray()
+            val constructorParams = usedEarlierLines.map(EarlierLine::getScriptClass).toTypedArray()
+            val constructorArgs = usedEarlierLines.map(EarlierLine::getScriptInstance).toTypedArray()
 
             val scriptInstanceConstructor = scriptClass.getConstructor(*constructorParams)
             val scriptInstance = try {
@@ -142,7 +145,7 @@ class ReplInterpreter(
             val rvField = scriptClass.getDeclaredField(SCRIPT_RESULT_FIELD_NAME).apply { isAccessible = true }
             val rv: Any? = rvField.get(scriptInstance)
 
-            earlierLines.add(EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance))
+            earlierLines[scriptDescriptor] = EarlierLine(line, scriptDescriptor, scriptClass, scriptInstance)
 
             if (!state.replSpecific.hasResult) {
                 return LineResult.UnitResult
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.repl
+
+import org.jetbrains.kotlin.descriptors.CallableDescriptor
+import org.jetbrains.kotlin.descriptors.PropertyDescriptor
+import org.jetbrains.kotlin.descriptors.ScriptDescriptor
+import org.jetbrains.kotlin.descriptors.VariableDescriptorWithAccessors
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.calls.callUtil.getResolvedCall
+import org.jetbrains.kotlin.resolve.calls.model.ResolvedCall
+import org.jetbrains.kotlin.resolve.calls.model.VariableAsFunctionResolvedCall
+import org.jetbrains.kotlin.resolve.inline.InlineUtil
+import org.jetbrains.kotlin.resolve.scopes.receivers.ImplicitClassReceiver
+import org.jetbrains.kotlin.resolve.scopes.receivers.ReceiverValue
+
+private val CONVENTION_CALLS_BY_EXPRESSION = listOf(
+        BindingContext.LOOP_RANGE_ITERATOR_RESOLVED_CALL,
+        BindingContext.LOOP_RANGE_HAS_NEXT_RESOLVED_CALL,
+        BindingContext.LOOP_RANGE_NEXT_RESOLVED_CALL,
+        BindingContext.INDEXED_LVALUE_GET,
+        BindingContext.INDEXED_LVALUE_SET
+)
+
+/**
+ * Returns earlier REPL lines whose members are used by the given line, ordered as the lines were submitted.
+ *
+ * Only instances of these lines are passed to the constructor of the class of the line and stored in its fields,
+ * so that the cost of compiling and evaluating a line and the memory retained by its instance don't depend on the length
+ * of the session. Members of earlier lines are always accessed via implicit receivers, so it's enough to look at the receivers
+ * of all calls in the line, including calls of conventions (delegates, destructuring, for loops and indexed assignments).
+ *
+ * Bodies of inline functions declared in earlier lines are regenerated in the context of the line which calls them,
+ * so the lines used by these bodies are also included, transitively.
+ */
+fun collectUsedEarlierScripts(script: KtScript, bindingContext: BindingContext): List<ScriptDescriptor> {
+    val collector = UsedEarlierScriptsCollector(bindingContext[BindingContext.SCRIPT, script], bindingContext)
+    script.accept(collector)
+    return collector.result.sortedBy { it.priority }
+}
+
+private class UsedEarlierScriptsCollector(
+        private val scriptDescriptor: ScriptDescriptor?,
+        private val bindingContext: BindingContext
+) : KtTreeVisitorVoid() {
+    val result = linkedSetOf<ScriptDescriptor>()
+    private val visitedInlineDeclarations = hashSetOf<KtDeclaration>()
+
+    override fun visitKtElement(element: KtElement) {
+        addCall(element.getResolvedCall(bindingContext))
+
+        if (element is KtExpression) {
+            CONVENTION_CALLS_BY_EXPRESSION.forEach { addCall(bindingContext[it, element]) }
+        }
+
+        if (element is KtDestructuringDeclarationEntry) {
+            addCall(bindingContext[BindingContext.COMPONENT_RESOLVED_CALL, element])
+        }
+
+        if (element is KtProperty && element.hasDelegate()) {
+            val descriptor = bindingContext[BindingContext.DECLARATION_TO_DESCRIPTOR, element] as? VariableDescriptorWithAccessors
+            if (descriptor != null) {
+                addCall(bindingContext[BindingContext.DELEGATED_PROPERTY_PD_RESOLVED_CALL, descriptor])
+                descriptor.getter?.let { addCall(bindingContext[BindingContext.DELEGATED_PROPERTY_RESOLVED_CALL, it]) }
+                descriptor.setter?.let { addCall(bindingContext[BindingContext.DELEGATED_PROPERTY_RESOLVED_CALL, it]) }
+            }
+        }
+
+        super.visitKtElement(element)
+    }
+
+    private fun addCall(resolvedCall: ResolvedCall<*>?) {
+        if (resolvedCall is VariableAsFunctionResolvedCall) {
+            addCall(resolvedCall.variableCall)
+            addCall(resolvedCall.functionCall)
+        }
+        else if (resolvedCall != null) {
+            addReceiver(resolvedCall.dispatchReceiver)
+            addReceiver(resolvedCall.extensionReceiver)
+            addInlineBody(resolvedCall.resultingDescriptor)
+        }
+    }
+
+    private fun addReceiver(receiver: ReceiverValue?) {
+        val descriptor = (receiver as? ImplicitClassReceiver)?.declarationDescriptor
+        if (descriptor is ScriptDescriptor && descriptor != scriptDescriptor) {
+            result.add(descriptor)
+        }
+    }
+
+    private fun addInlineBody(descriptor: CallableDescriptor) {
+        val isInline = if (descriptor is PropertyDescriptor) InlineUtil.hasInlineAccessors(descriptor) else InlineUtil.isInline(descriptor)
+        if (!isInline) return
+
+        val declaringScript = DescriptorUtils.getParentOfType(descriptor, ScriptDescriptor::class.java)
+        if (declaringScript == null || declaringScript == scriptDescriptor) return
+
+        val declaration = DescriptorToSourceUtils.descriptorToDeclaration(descriptor.original) as? KtDeclaration ?: return
+        if (visitedInlineDeclarations.add(declaration)) {
+            declaration.accept(this)
+        }
+    }
+}
@@ -65,6 +65,15 @@ public class JVMConfigurationKeys {
     public static final CompilerConfigurationKey<Boolean> INTERFACE_COMPATIBILITY =
             CompilerConfigurationKey.create("Generate additional 'DefaultImpls' class files for jvm 8 target for compatibility with 6 target interfaces");
 
+    public static final CompilerConfigurationKey<Boolean> USE_LAMBDA_METAFACTORY =
+            CompilerConfigurationKey.create("Generate SAM conversions of lambdas and function values via invokedynamic and LambdaMetafactory");
+
+    public static final CompilerConfigurationKey<Boolean> SEALED_CLASS_TAGS =
+            CompilerConfigurationKey.create("Generate 'when' over sealed class hierarchies as a tableswitch on tags of the subclasses");
+
+    public static final CompilerConfigurationKey<Boolean> COMPACT_NULL_CHECKS =
+            CompilerConfigurationKey.create("Generate null checks of parameters and platform type expressions as inline branches");
+
     public static final CompilerConfigurationKey<IncrementalCompilationComponents> INCREMENTAL_COMPILATION_COMPONENTS =
             CompilerConfigurationKey.create("incremental cache provider");
 
@@ -306,6 +306,13 @@ object WhenChecker {
             enumClassDescriptor: ClassDescriptor
     ) = WhenOnEnumExhaustivenessChecker.getMissingCases(expression, context, enumClassDescriptor, false)
 
+    /**
+     * Direct subclasses of a sealed class, i.e. the classes which are checked for exhaustiveness of `when` on it
+     */
+    @JvmStatic
+    fun getSealedSubclasses(sealedClassDescriptor: ClassDescriptor): Set<ClassDescriptor> =
+            WhenOnSealedExhaustivenessChecker.getNestedSubclasses(sealedClassDescriptor)
+
     fun getMissingCases(expression: KtWhenExpression, context: BindingContext): List<WhenMissingCase> {
         val type = whenSubjectType(expression, context) ?: return listOf(UnknownMissingCase)
         val nullable = type.isMarkedNullable
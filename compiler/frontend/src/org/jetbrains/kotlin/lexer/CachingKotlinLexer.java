@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.lexer;
+
+import com.intellij.lexer.LexerBase;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * A Kotlin lexer which remembers token streams of whole files it has lexed, keyed by the file text.
+ * When the same text is lexed again (e.g. by the compile daemon or the REPL, which see unchanged files over and over),
+ * the tokens are replayed from the cache instead of running the generated lexer.
+ * Lexing of a part of a buffer (as done after {@link #restore}) is delegated to {@link KotlinLexer}.
+ * <p>
+ * The lexer is only used for whole files (see {@link org.jetbrains.kotlin.parsing.KotlinParserDefinition#createFileLexer}),
+ * lambdas and blocks which are parsed lazily don't get into the cache.
+ */
+public class CachingKotlinLexer extends LexerBase {
+    private static final int CACHE_SIZE = 200;
+
+    private static final Map<TextKey, TokenStream> CACHE = new LinkedHashMap<TextKey, TokenStream>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TextKey, TokenStream> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final KotlinLexer delegate = new KotlinLexer();
+
+    private CharSequence buffer;
+    private int bufferEnd;
+
+    // null if lexing is delegated
+    private TokenStream tokens;
+    private int index;
+
+    @Override
+    public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState) {
+        this.buffer = buffer;
+        this.bufferEnd = endOffset;
+
+        if (startOffset == 0 && endOffset == buffer.length() && initialState == 0) {
+            tokens = getTokenStream(buffer);
+            index = 0;
+        }
+        else {
+            tokens = null;
+            delegate.start(buffer, startOffset, endOffset, initialState);
+        }
+    }
+
+    @Override
+    public int getState() {
+        if (tokens == null) return delegate.getState();
+        return index < tokens.count ? tokens.states[index] : tokens.finalState;
+    }
+
+    @Nullable
+    @Override
+    public IElementType getTokenType() {
+        if (tokens == null) return delegate.getTokenType();
+        return index < tokens.count ? IElementType.find(tokens.types[index]) : null;
+    }
+
+    @Override
+    public int getTokenStart() {
+        if (tokens == null) return delegate.getTokenStart();
+        return tokens.offsets[index];
+    }
+
+    @Override
+    public int getTokenEnd() {
+        if (tokens == null) return delegate.getTokenEnd();
+        return index < tokens.count ? tokens.offsets[index + 1] : tokens.offsets[index];
+    }
+
+    @Override
+    public void advance() {
+        if (tokens == null) {
+            delegate.advance();
+        }
+        else if (index < tokens.count) {
+            index++;
+        }
+    }
+
+    @NotNull
+    @Override
+    public CharSequence getBufferSequence() {
+        return buffer;
+    }
+
+    @Override
+    public int getBufferEnd() {
+        return bufferEnd;
+    }
+
+    @NotNull
+    private static TokenStream getTokenStream(@NotNull CharSequence buffer) {
+        // The buffer is only copied to be stored in the cache, when it's lexed anyway
+        synchronized (CACHE) {
+            TokenStream cached = CACHE.get(new TextKey(buffer));
+            if (cached != null) return cached;
+        }
+
+        String text = buffer.toString();
+        TokenStream tokens = TokenStream.lex(text);
+
+        synchronized (CACHE) {
+            CACHE.put(new TextKey(text), tokens);
+        }
+        return tokens;
+    }
+
+    private static class TextKey {
+        private final CharSequence text;
+        private final int hashCode;
+
+        TextKey(@NotNull CharSequence text) {
+            this.text = text;
+
+            int hashCode = 0;
+            for (int i = 0; i < text.length(); i++) {
+                hashCode = 31 * hashCode + text.charAt(i);
+            }
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TextKey)) return false;
+
+            TextKey other = (TextKey) o;
+            if (hashCode != other.hashCode || text.length() != other.text.length()) return false;
+
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != other.text.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class TokenStream {
+        final int count;
+        final short[] types;
+        // offsets[i] is the start of the i-th token; offsets[count] is the end of the text
+        final int[] offsets;
+        final int[] states;
+        final int finalState;
+
+        private TokenStream(int count, short[] types, int[] offsets, int[] states, int finalState) {
+            this.count = count;
+            this.types = types;
+            this.offsets = offsets;
+            this.states = states;
+            this.finalState = finalState;
+        }
+
+        @NotNull
+        static TokenStream lex(@NotNull String text) {
+            KotlinLexer lexer = new KotlinLexer();
+            lexer.start(text);
+
+            int capacity = text.length() / 4 + 16;
+            short[] types = new short[capacity];
+            int[] offsets = new int[capacity + 1];
+            int[] states = new int[capacity];
+            int count = 0;
+
+            IElementType type;
+            while ((type = lexer.getTokenType()) != null) {
+                if (count == types.length) {
+                    capacity *= 2;
+                    types = copyOf(types, capacity);
+                    offsets = copyOf(offsets, capacity + 1);
+                    states = copyOf(states, capacity);
+                }
+                types[count] = type.getIndex();
+                offsets[count] = lexer.getTokenStart();
+                states[count] = lexer.getState();
+                count++;
+                lexer.advance();
+            }
+            offsets[count] = text.length();
+
+            return new TokenStream(count, copyOf(types, count), copyOf(offsets, count + 1), copyOf(states, count), lexer.getState());
+        }
+    }
+}
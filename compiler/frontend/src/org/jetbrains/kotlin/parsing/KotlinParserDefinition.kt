@@ -35,6 +35,7 @@ import org.jetbrains.kotlin.idea.KotlinLanguage
 import org.jetbrains.kotlin.kdoc.lexer.KDocTokens
 import org.jetbrains.kotlin.kdoc.parser.KDocElementType
 import org.jetbrains.kotlin.kdoc.psi.impl.KDocLink
+import org.jetbrains.kotlin.lexer.CachingKotlinLexer
 import org.jetbrains.kotlin.lexer.KotlinLexer
 import org.jetbrains.kotlin.lexer.KtKeywordToken
 import org.jetbrains.kotlin.lexer.KtTokens
@@ -44,10 +45,20 @@ import org.jetbrains.kotlin.psi.psiUtil.getNonStrictParentOfType
 import org.jetbrains.kotlin.psi.stubs.elements.KtStubElementType
 import org.jetbrains.kotlin.psi.stubs.elements.KtStubElementTypes
 
-class KotlinParserDefinition : ParserDefinition {
+/**
+ * @param cacheTokens whether token streams of whole files should be cached across parser runs (see [CachingKotlinLexer]).
+ *                    Useful in long-living compiler processes where unchanged files are parsed again and again
+ */
+class KotlinParserDefinition(private val cacheTokens: Boolean = false) : ParserDefinition {
 
     override fun createLexer(project: Project): Lexer = KotlinLexer()
 
+    /**
+     * Lexer for the text of a whole file (see [org.jetbrains.kotlin.psi.stubs.elements.KtFileElementType]).
+     * Lambdas and blocks which are parsed lazily use [createLexer], so they don't evict files from the token cache
+     */
+    fun createFileLexer(): Lexer = if (cacheTokens) CachingKotlinLexer() else KotlinLexer()
+
     override fun createParser(project: Project): PsiParser = KotlinParser(project)
 
     override fun getFileNodeType(): IFileElementType = KtStubElementTypes.FILE
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.psi.stubs.elements;
 
 import com.intellij.lang.*;
+import com.intellij.lexer.Lexer;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.StubBuilder;
@@ -29,6 +30,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
 import org.jetbrains.kotlin.parsing.KotlinParser;
+import org.jetbrains.kotlin.parsing.KotlinParserDefinition;
 import org.jetbrains.kotlin.psi.stubs.KotlinFileStub;
 import org.jetbrains.kotlin.psi.stubs.KotlinStubVersions;
 
@@ -77,8 +79,12 @@ public class KtFileElementType extends IStubFileElementType<KotlinFileStub> {
     protected ASTNode doParseContents(@NotNull ASTNode chameleon, @NotNull PsiElement psi) {
         Project project = psi.getProject();
         Language languageForParser = getLanguageForParser(psi);
-        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, null, languageForParser, chameleon.getChars());
-        KotlinParser parser = (KotlinParser) LanguageParserDefinitions.INSTANCE.forLanguage(languageForParser).createParser(project);
+        ParserDefinition parserDefinition = LanguageParserDefinitions.INSTANCE.forLanguage(languageForParser);
+        Lexer lexer = parserDefinition instanceof KotlinParserDefinition
+                      ? ((KotlinParserDefinition) parserDefinition).createFileLexer()
+                      : null;
+        PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(project, chameleon, lexer, languageForParser, chameleon.getChars());
+        KotlinParser parser = (KotlinParser) parserDefinition.createParser(project);
         return parser.parse(this, builder, psi.getContainingFile()).getFirstChildNode();
     }
 
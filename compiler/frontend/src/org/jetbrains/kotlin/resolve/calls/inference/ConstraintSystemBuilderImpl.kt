@@ -259,10 +259,7 @@ open class ConstraintSystemBuilderImpl(private val mode: Mode = ConstraintSystem
     ) {
         val bound = Bound(typeVariable, constrainingType, kind, constraintContext.position,
                           constrainingType.isProper(), constraintContext.derivedFrom ?: emptySet())
-        val typeBounds = getTypeBounds(typeVariable)
-        if (typeBounds.bounds.contains(bound)) return
-
-        typeBounds.addBound(bound)
+        if (!getTypeBounds(typeVariable).addBound(bound)) return
 
         if (!bound.isProper) {
             for (dependentTypeVariable in getNestedTypeVariables(bound.constrainingType)) {
@@ -27,7 +27,13 @@ import org.jetbrains.kotlin.utils.addIfNotNull
 import java.util.*
 
 class TypeBoundsImpl(override val typeVariable: TypeVariable) : TypeBounds {
-    override val bounds = ArrayList<Bound>()
+    // The list (and the index) may be shared with copies made by 'filter', in which case it's copied before the first modification
+    private var boundList = ArrayList<Bound>()
+    private var boundSet: MutableSet<Bound>? = null
+    private var isShared = false
+
+    override val bounds: List<Bound>
+        get() = boundList
 
     private var resultValues: Collection<KotlinType>? = null
 
@@ -38,12 +44,34 @@ class TypeBoundsImpl(override val typeVariable: TypeVariable) : TypeBounds {
         isFixed = true
     }
 
-    fun addBound(bound: Bound) {
-        resultValues = null
+    /**
+     * Returns false if an equal bound is already present
+     */
+    fun addBound(bound: Bound): Boolean {
         assert(bound.typeVariable == typeVariable) {
             "$bound is added for incorrect type variable ${bound.typeVariable.name}. Expected: ${typeVariable.name}"
         }
-        bounds.add(bound)
+        if (containsBound(bound)) return false
+
+        if (isShared) {
+            boundList = ArrayList(boundList)
+            boundSet = boundSet?.let { HashSet(it) }
+            isShared = false
+        }
+
+        resultValues = null
+        boundList.add(bound)
+        boundSet?.add(bound)
+        return true
+    }
+
+    private fun containsBound(bound: Bound): Boolean {
+        boundSet?.let { return bound in it }
+
+        // Incorporation may produce lots of bounds for one variable, so they're indexed to avoid quadratic number of comparisons
+        if (boundList.size < MIN_BOUNDS_TO_INDEX) return bound in boundList
+        boundSet = HashSet(boundList)
+        return bound in boundSet!!
     }
 
     private fun filterBounds(bounds: Collection<Bound>, kind: BoundKind, errorValues: MutableCollection<KotlinType>? = null): Set<KotlinType> {
@@ -63,7 +91,17 @@ class TypeBoundsImpl(override val typeVariable: TypeVariable) : TypeBounds {
 
     fun filter(condition: (ConstraintPosition) -> Boolean): TypeBoundsImpl {
         val result = TypeBoundsImpl(typeVariable)
-        result.bounds.addAll(bounds.filter { condition(it.position) })
+        if (boundList.all { condition(it.position) }) {
+            // Usually nothing is filtered out, so the copy shares bounds (and computed values) with this instance
+            isShared = true
+            result.boundList = boundList
+            result.boundSet = boundSet
+            result.isShared = true
+            result.resultValues = resultValues
+        }
+        else {
+            boundList.filterTo(result.boundList) { condition(it.position) }
+        }
         return result
     }
 
@@ -198,4 +236,8 @@ class TypeBoundsImpl(override val typeVariable: TypeVariable) : TypeBounds {
         }
         return upperBounds
     }
+
+    companion object {
+        private const val MIN_BOUNDS_TO_INDEX = 8
+    }
 }
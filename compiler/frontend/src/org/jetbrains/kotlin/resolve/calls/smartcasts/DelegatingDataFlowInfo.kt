@@ -16,60 +16,36 @@
 
 package org.jetbrains.kotlin.resolve.calls.smartcasts
 
-import com.google.common.collect.*
+import com.google.common.collect.LinkedHashMultimap
+import com.google.common.collect.SetMultimap
 import org.jetbrains.kotlin.builtins.KotlinBuiltIns
-import org.jetbrains.kotlin.types.*
+import org.jetbrains.kotlin.resolve.calls.smartcasts.Nullability.NOT_NULL
 import org.jetbrains.kotlin.types.KotlinType
 import org.jetbrains.kotlin.types.TypeUtils
-import org.jetbrains.kotlin.types.typeUtil.*
-
+import org.jetbrains.kotlin.types.isFlexible
+import org.jetbrains.kotlin.types.typeUtil.isSubtypeOf
+import org.jetbrains.kotlin.util.PersistentTrieMap
 import java.util.*
 
-import org.jetbrains.kotlin.resolve.calls.smartcasts.Nullability.NOT_NULL
-
+/**
+ * Keeps complete nullability and type information in persistent maps, so that every operation
+ * costs O(log n) in the number of tracked values and shares all unchanged information with the original data flow info.
+ */
 internal class DelegatingDataFlowInfo private constructor(
-        private val parent: DataFlowInfo?,
-        private val nullabilityInfo: ImmutableMap<DataFlowValue, Nullability>,
-        // Also immutable
-        private val typeInfo: SetMultimap<DataFlowValue, KotlinType>,
-        /**
-         * Value for which type info was cleared or reassigned at this point
-         * so parent type info should not be in use
-         */
-        private val valueWithGivenTypeInfo: DataFlowValue?
+        private val nullabilityInfo: PersistentTrieMap<DataFlowValue, Nullability>,
+        // Types are stored newest first; sets are never empty and never contain the value's own type
+        private val typeInfo: PersistentTrieMap<DataFlowValue, Set<KotlinType>>
 ) : DataFlowInfo {
 
-    constructor(): this(null, ImmutableMap.of(), newTypeInfo(), null)
+    constructor(): this(PersistentTrieMap.empty(), PersistentTrieMap.empty())
 
     override val completeNullabilityInfo: Map<DataFlowValue, Nullability>
-        get() {
-            val result = Maps.newHashMap<DataFlowValue, Nullability>()
-            var info: DelegatingDataFlowInfo? = this
-            while (info != null) {
-                for ((key, value) in info.nullabilityInfo) {
-                    if (!result.containsKey(key)) {
-                        result.put(key, value)
-                    }
-                }
-                info = info.parent as DelegatingDataFlowInfo?
-            }
-            return result
-        }
+        get() = nullabilityInfo.toMap()
 
     override val completeTypeInfo: SetMultimap<DataFlowValue, KotlinType>
         get() {
             val result = newTypeInfo()
-            val withGivenTypeInfo = HashSet<DataFlowValue>()
-            var info: DelegatingDataFlowInfo? = this
-            while (info != null) {
-                for (key in info.typeInfo.keySet()) {
-                    if (!withGivenTypeInfo.contains(key)) {
-                        result.putAll(key, info.typeInfo.get(key))
-                    }
-                }
-                info.valueWithGivenTypeInfo?.let { withGivenTypeInfo.add(it) }
-                info = info.parent as DelegatingDataFlowInfo?
-            }
+            typeInfo.forEach { value, types -> result.putAll(value, types) }
             return result
         }
 
@@ -82,12 +58,7 @@ internal class DelegatingDataFlowInfo private constructor(
                 key.immanentNullability
             }
             else {
-                nullabilityInfo[key] ?: if (parent != null) {
-                    parent.getCollectedNullability(key)
-                }
-                else {
-                    key.immanentNullability
-                }
+                nullabilityInfo[key] ?: key.immanentNullability
             }
 
     private fun putNullability(map: MutableMap<DataFlowValue, Nullability>, value: DataFlowValue,
@@ -115,12 +86,12 @@ internal class DelegatingDataFlowInfo private constructor(
     override fun getCollectedTypes(key: DataFlowValue) = getCollectedTypes(key, true)
 
     private fun getCollectedTypes(key: DataFlowValue, enrichWithNotNull: Boolean): Set<KotlinType> {
-        val types = collectTypesFromMeAndParents(key)
+        val types = typeInfo[key] ?: emptySet<KotlinType>()
         if (!enrichWithNotNull || getCollectedNullability(key).canBeNull()) {
             return types
         }
 
-        val enrichedTypes = Sets.newHashSetWithExpectedSize<KotlinType>(types.size + 1)
+        val enrichedTypes = LinkedHashSet<KotlinType>(types.size + 1)
         val originalType = key.type
         if (originalType.isMarkedNullable) {
             enrichedTypes.add(TypeUtils.makeNotNullable(originalType))
@@ -144,18 +115,17 @@ internal class DelegatingDataFlowInfo private constructor(
      * @param value
      */
     override fun clearValueInfo(value: DataFlowValue): DataFlowInfo {
-        val builder = Maps.newHashMap<DataFlowValue, Nullability>()
-        putNullability(builder, value, Nullability.UNKNOWN)
-        return create(this, ImmutableMap.copyOf(builder), EMPTY_TYPE_INFO, value)
+        val nullability = HashMap<DataFlowValue, Nullability>()
+        putNullability(nullability, value, Nullability.UNKNOWN)
+        return create(nullability, typeInfo.remove(value))
     }
 
     override fun assign(a: DataFlowValue, b: DataFlowValue): DataFlowInfo {
-        val nullability = Maps.newHashMap<DataFlowValue, Nullability>()
+        val nullability = HashMap<DataFlowValue, Nullability>()
         val nullabilityOfB = getStableNullability(b)
         putNullability(nullability, a, nullabilityOfB, affectReceiver = false)
 
-        val newTypeInfo = newTypeInfo()
-        var typesForB = getStableTypes(b)
+        val typesForB = LinkedHashSet(getStableTypes(b))
         // Own type of B must be recorded separately, e.g. for a constant
         // But if its type is the same as A, there is no reason to do it
         // because own type is not saved in this set
@@ -163,13 +133,13 @@ internal class DelegatingDataFlowInfo private constructor(
         if (!b.type.isError && a.type != b.type) {
             typesForB += b.type
         }
-        newTypeInfo.putAll(a, typesForB)
 
-        return create(this, ImmutableMap.copyOf(nullability), if (newTypeInfo.isEmpty) EMPTY_TYPE_INFO else newTypeInfo, a)
+        // Previously collected types of A are no longer valid
+        return create(nullability, typeInfo.remove(a).withTypes(a, typesForB))
     }
 
     override fun equate(a: DataFlowValue, b: DataFlowValue, sameTypes: Boolean): DataFlowInfo {
-        val builder = Maps.newHashMap<DataFlowValue, Nullability>()
+        val builder = HashMap<DataFlowValue, Nullability>()
         val nullabilityOfA = getStableNullability(a)
         val nullabilityOfB = getStableNullability(b)
 
@@ -177,75 +147,45 @@ internal class DelegatingDataFlowInfo private constructor(
                       putNullability(builder, b, nullabilityOfB.refine(nullabilityOfA))
 
         // NB: == has no guarantees of type equality, see KT-11280 for the example
-        val newTypeInfo = newTypeInfo()
+        var newTypeInfo = typeInfo
         if (sameTypes) {
-            newTypeInfo.putAll(a, getStableTypes(b, false))
-            newTypeInfo.putAll(b, getStableTypes(a, false))
+            val typesForA = LinkedHashSet(getStableTypes(b, false))
+            val typesForB = LinkedHashSet(getStableTypes(a, false))
             if (a.type != b.type) {
                 // To avoid recording base types of own type
                 if (!a.type.isSubtypeOf(b.type)) {
-                    newTypeInfo.put(a, b.type)
+                    typesForA.add(b.type)
                 }
                 if (!b.type.isSubtypeOf(a.type)) {
-                    newTypeInfo.put(b, a.type)
-                }
-            }
-            changed = changed or !newTypeInfo.isEmpty
-        }
-
-        return if (!changed) {
-            this
-        }
-        else {
-            create(this, ImmutableMap.copyOf(builder), if (newTypeInfo.isEmpty) EMPTY_TYPE_INFO else newTypeInfo)
-        }
-    }
-
-    private fun collectTypesFromMeAndParents(value: DataFlowValue): Set<KotlinType> {
-        val types = LinkedHashSet<KotlinType>()
-
-        var current: DataFlowInfo? = this
-        while (current != null) {
-            if (current is DelegatingDataFlowInfo) {
-                types.addAll(current.typeInfo.get(value))
-                if (value == current.valueWithGivenTypeInfo) {
-                    current = null
-                }
-                else {
-                    current = current.parent
+                    typesForB.add(a.type)
                 }
             }
-            else {
-                types.addAll(current.getCollectedTypes(value))
-                break
-            }
+            changed = changed or typesForA.isNotEmpty() or typesForB.isNotEmpty()
+            newTypeInfo = newTypeInfo.withTypes(a, typesForA).withTypes(b, typesForB)
         }
 
-        return types
+        return if (!changed) this else create(builder, newTypeInfo)
     }
 
     override fun disequate(a: DataFlowValue, b: DataFlowValue): DataFlowInfo {
-        val builder = Maps.newHashMap<DataFlowValue, Nullability>()
+        val builder = HashMap<DataFlowValue, Nullability>()
         val nullabilityOfA = getStableNullability(a)
         val nullabilityOfB = getStableNullability(b)
 
         val changed = putNullability(builder, a, nullabilityOfA.refine(nullabilityOfB.invert())) or
                       putNullability(builder, b, nullabilityOfB.refine(nullabilityOfA.invert()))
-        return if (changed) create(this, ImmutableMap.copyOf(builder), EMPTY_TYPE_INFO) else this
+        return if (changed) create(builder, typeInfo) else this
     }
 
     override fun establishSubtyping(value: DataFlowValue, type: KotlinType): DataFlowInfo {
         if (value.type == type) return this
         if (getCollectedTypes(value).contains(type)) return this
         if (!value.type.isFlexible() && value.type.isSubtypeOf(type)) return this
-        val newTypeInfo = newTypeInfo()
-        newTypeInfo.put(value, type)
-        val builder = Maps.newHashMap<DataFlowValue, Nullability>()
+        val builder = HashMap<DataFlowValue, Nullability>()
         if (!type.isMarkedNullable) {
             putNullability(builder, value, NOT_NULL)
         }
-        val newNullabilityInfo = if (type.isMarkedNullable) EMPTY_NULLABILITY_INFO else ImmutableMap.copyOf(builder)
-        return create(this, newNullabilityInfo, newTypeInfo)
+        return create(builder, typeInfo.withTypes(value, setOf(type)))
     }
 
     override fun and(other: DataFlowInfo): DataFlowInfo {
@@ -254,9 +194,10 @@ internal class DelegatingDataFlowInfo private constructor(
         if (this === other) return this
 
         assert(other is DelegatingDataFlowInfo) { "Unknown DataFlowInfo type: " + other }
+        other as DelegatingDataFlowInfo
 
-        val nullabilityMapBuilder = Maps.newHashMap<DataFlowValue, Nullability>()
-        for ((key, otherFlags) in other.completeNullabilityInfo) {
+        val nullabilityMapBuilder = HashMap<DataFlowValue, Nullability>()
+        other.nullabilityInfo.forEach { key, otherFlags ->
             val thisFlags = getCollectedNullability(key)
             val flags = thisFlags.and(otherFlags)
             if (flags != thisFlags) {
@@ -264,13 +205,14 @@ internal class DelegatingDataFlowInfo private constructor(
             }
         }
 
-        val myTypeInfo = completeTypeInfo
-        val otherTypeInfo = other.completeTypeInfo
-        if (nullabilityMapBuilder.isEmpty() && containsAll(myTypeInfo, otherTypeInfo)) {
+        var newTypeInfo = typeInfo
+        other.typeInfo.forEach { key, types -> newTypeInfo = newTypeInfo.withTypes(key, types) }
+
+        if (nullabilityMapBuilder.isEmpty() && newTypeInfo === typeInfo) {
             return this
         }
 
-        return create(this, ImmutableMap.copyOf(nullabilityMapBuilder), otherTypeInfo)
+        return create(nullabilityMapBuilder, newTypeInfo)
     }
 
     private fun Set<KotlinType>.containsNothing() = any { KotlinBuiltIns.isNothing(it) }
@@ -278,7 +220,7 @@ internal class DelegatingDataFlowInfo private constructor(
     private fun Set<KotlinType>.intersect(other: Set<KotlinType>) =
             if (other.containsNothing()) this
             else if (this.containsNothing()) other
-            else Sets.intersection(this, other)
+            else this.filterTo(LinkedHashSet()) { it in other }
 
     override fun or(other: DataFlowInfo): DataFlowInfo {
         if (other === DataFlowInfo.EMPTY) return DataFlowInfo.EMPTY
@@ -286,57 +228,67 @@ internal class DelegatingDataFlowInfo private constructor(
         if (this === other) return this
 
         assert(other is DelegatingDataFlowInfo) { "Unknown DataFlowInfo type: " + other }
+        other as DelegatingDataFlowInfo
 
-        val nullabilityMapBuilder = Maps.newHashMap<DataFlowValue, Nullability>()
-        for ((key, otherFlags) in other.completeNullabilityInfo) {
+        var newNullabilityInfo = PersistentTrieMap.empty<DataFlowValue, Nullability>()
+        other.nullabilityInfo.forEach { key, otherFlags ->
             val thisFlags = getCollectedNullability(key)
-            nullabilityMapBuilder.put(key, thisFlags.or(otherFlags))
+            newNullabilityInfo = newNullabilityInfo.put(key, thisFlags.or(otherFlags))
         }
 
-        val myTypeInfo = completeTypeInfo
-        val otherTypeInfo = other.completeTypeInfo
-        val newTypeInfo = newTypeInfo()
-
-        for (key in Sets.intersection(myTypeInfo.keySet(), otherTypeInfo.keySet())) {
-            newTypeInfo.putAll(key, myTypeInfo[key].intersect(otherTypeInfo[key]))
+        var newTypeInfo = PersistentTrieMap.empty<DataFlowValue, Set<KotlinType>>()
+        typeInfo.forEach { key, types ->
+            val otherTypes = other.typeInfo[key]
+            if (otherTypes != null) {
+                newTypeInfo = newTypeInfo.withTypes(key, types.intersect(otherTypes))
+            }
         }
 
-        return create(null, ImmutableMap.copyOf(nullabilityMapBuilder), newTypeInfo)
+        return create(newNullabilityInfo, newTypeInfo)
     }
 
-    override fun toString() = if (typeInfo.isEmpty && nullabilityInfo.isEmpty()) "EMPTY" else "Non-trivial DataFlowInfo"
-
-    companion object {
-        private val EMPTY_NULLABILITY_INFO = ImmutableMap.of<DataFlowValue, Nullability>()
-        private val EMPTY_TYPE_INFO = newTypeInfo()
+    override fun toString() = if (typeInfo.isEmpty() && nullabilityInfo.isEmpty()) "EMPTY" else "Non-trivial DataFlowInfo"
 
-        private fun containsAll(first: SetMultimap<DataFlowValue, KotlinType>, second: SetMultimap<DataFlowValue, KotlinType>) =
-                first.entries().containsAll(second.entries())
+    private fun create(
+            nullabilityUpdates: Map<DataFlowValue, Nullability>,
+            newTypeInfo: PersistentTrieMap<DataFlowValue, Set<KotlinType>>
+    ): DataFlowInfo {
+        var newNullabilityInfo = nullabilityInfo
+        for ((value, nullability) in nullabilityUpdates) {
+            newNullabilityInfo = newNullabilityInfo.put(value, nullability)
+        }
+        return create(newNullabilityInfo, newTypeInfo)
+    }
 
+    companion object {
         fun newTypeInfo(): SetMultimap<DataFlowValue, KotlinType> = LinkedHashMultimap.create<DataFlowValue, KotlinType>()
 
-        private fun create(parent: DataFlowInfo?,
-                           nullabilityInfo: ImmutableMap<DataFlowValue, Nullability>,
-                           // NB: typeInfo must be mutable here!
-                           typeInfo: SetMultimap<DataFlowValue, KotlinType>,
-                           valueWithGivenTypeInfo: DataFlowValue? = null
+        /**
+         * Adds the given types to the ones already known for the value, putting the new ones first.
+         * The value's own type is never recorded (see also KT-10666)
+         */
+        private fun PersistentTrieMap<DataFlowValue, Set<KotlinType>>.withTypes(
+                value: DataFlowValue,
+                types: Set<KotlinType>
+        ): PersistentTrieMap<DataFlowValue, Set<KotlinType>> {
+            val oldTypes = this[value] ?: emptySet<KotlinType>()
+            val newTypes = types.filter { it != value.type && it !in oldTypes }
+            if (newTypes.isEmpty()) return this
+
+            val result = LinkedHashSet<KotlinType>(newTypes.size + oldTypes.size)
+            result.addAll(newTypes)
+            result.addAll(oldTypes)
+            return put(value, Collections.unmodifiableSet(result))
+        }
+
+        private fun create(
+                nullabilityInfo: PersistentTrieMap<DataFlowValue, Nullability>,
+                typeInfo: PersistentTrieMap<DataFlowValue, Set<KotlinType>>
         ): DataFlowInfo {
-            val toDelete = newTypeInfo()
-            for (value in typeInfo.keys()) {
-                for (type in typeInfo[value]) {
-                    // Remove original type (see also KT-10666)
-                    if (value.type == type) {
-                        toDelete.put(value, type)
-                    }
-                }
-            }
-            for ((value, type) in toDelete.entries()) {
-                typeInfo.remove(value, type)
-            }
-            if (nullabilityInfo.isEmpty() && typeInfo.isEmpty && valueWithGivenTypeInfo == null) {
-                return parent ?: DataFlowInfoFactory.EMPTY
+            if (nullabilityInfo.isEmpty() && typeInfo.isEmpty()) {
+                return DataFlowInfoFactory.EMPTY
             }
-            return DelegatingDataFlowInfo(parent, nullabilityInfo, typeInfo, valueWithGivenTypeInfo)
+            return DelegatingDataFlowInfo(nullabilityInfo, typeInfo)
         }
     }
 }
@@ -82,7 +82,8 @@ class LazyImportResolver(
         val indexedImports: IndexedImports,
         excludedImportNames: Collection<FqName>,
         private val traceForImportResolve: BindingTrace,
-        private val packageFragment: PackageFragmentDescriptor
+        private val packageFragment: PackageFragmentDescriptor,
+        private val cacheContributedDescriptors: Boolean = false
 ) : ImportResolver {
     private val importedScopesProvider = storageManager.createMemoizedFunctionWithNullableValues {
         directive: KtImportDirective ->
@@ -98,6 +99,10 @@ class LazyImportResolver(
         }
     }
 
+    // Functions and variables imported by name; only used when lookups needn't be recorded for each call (see FileScopeFactory)
+    private val functionsByName = storageManager.createCacheWithNotNullValues<Name, Collection<FunctionDescriptor>>()
+    private val variablesByName = storageManager.createCacheWithNotNullValues<Name, Collection<VariableDescriptor>>()
+
     override fun forceResolveAllImports() {
         val explicitClassImports = HashMultimap.create<String, KtImportDirective>()
         for (importDirective in indexedImports.imports) {
@@ -163,6 +168,24 @@ class LazyImportResolver(
         }
     }
 
+    fun getContributedFunctions(name: Name, location: LookupLocation): Collection<FunctionDescriptor> {
+        if (!cacheContributedDescriptors) {
+            return collectFromImports(name) { scope, name -> scope.getContributedFunctions(name, location) }
+        }
+        return functionsByName.computeIfAbsent(name) {
+            collectFromImports(name) { scope, name -> scope.getContributedFunctions(name, location) }
+        }
+    }
+
+    fun getContributedVariables(name: Name, location: LookupLocation): Collection<VariableDescriptor> {
+        if (!cacheContributedDescriptors) {
+            return collectFromImports(name) { scope, name -> scope.getContributedVariables(name, location) }
+        }
+        return variablesByName.computeIfAbsent(name) {
+            collectFromImports(name) { scope, name -> scope.getContributedVariables(name, location) }
+        }
+    }
+
     fun getImportScope(directive: KtImportDirective): ImportingScope {
         return importedScopesProvider(directive) ?: ImportingScope.Empty
     }
@@ -206,12 +229,12 @@ class LazyImportScope(
 
     override fun getContributedVariables(name: Name, location: LookupLocation): Collection<VariableDescriptor> {
         if (filteringKind == FilteringKind.INVISIBLE_CLASSES) return listOf()
-        return importResolver.collectFromImports(name) { scope, name -> scope.getContributedVariables(name, location) }
+        return importResolver.getContributedVariables(name, location)
     }
 
     override fun getContributedFunctions(name: Name, location: LookupLocation): Collection<FunctionDescriptor> {
         if (filteringKind == FilteringKind.INVISIBLE_CLASSES) return listOf()
-        return importResolver.collectFromImports(name) { scope, name -> scope.getContributedFunctions(name, location) }
+        return importResolver.getContributedFunctions(name, location)
     }
 
     override fun getContributedDescriptors(kindFilter: DescriptorKindFilter, nameFilter: (Name) -> Boolean): Collection<DeclarationDescriptor> {
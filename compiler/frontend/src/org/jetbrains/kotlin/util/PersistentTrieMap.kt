@@ -0,0 +1,204 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util
+
+/**
+ * Immutable hash map based on a hash array mapped trie. Updates return a new map which shares all unchanged nodes
+ * with the original one, so both lookups and updates take O(log32 n) time and allocate only the changed path.
+ *
+ * Updates which don't change anything (putting an equal value, removing an absent key) return the same instance.
+ */
+class PersistentTrieMap<K : Any, V : Any> private constructor(private val root: Node?, val size: Int) {
+    private class Entry(val key: Any, val value: Any, val hash: Int)
+
+    private abstract class Node {
+        abstract fun get(key: Any, hash: Int, shift: Int): Any?
+        abstract fun put(entry: Entry, shift: Int): Node
+        // null means that the node became empty
+        abstract fun remove(key: Any, hash: Int, shift: Int): Node?
+        abstract fun forEach(action: (Entry) -> Unit)
+    }
+
+    /**
+     * Each slot is either an [Entry] or a child [Node]; slots are present for the bits set in [bitmap].
+     */
+    private class BitmapNode(val bitmap: Int, val slots: Array<Any>) : Node() {
+        override fun get(key: Any, hash: Int, shift: Int): Any? {
+            val bit = bit(hash, shift)
+            if (bitmap and bit == 0) return null
+            val slot = slots[index(bit)]
+            return if (slot is Entry) (if (slot.key == key) slot.value else null) else (slot as Node).get(key, hash, shift + BITS)
+        }
+
+        override fun put(entry: Entry, shift: Int): Node {
+            val bit = bit(entry.hash, shift)
+            val index = index(bit)
+            if (bitmap and bit == 0) {
+                val newSlots = arrayOfNulls<Any>(slots.size + 1)
+                System.arraycopy(slots, 0, newSlots, 0, index)
+                newSlots[index] = entry
+                System.arraycopy(slots, index, newSlots, index + 1, slots.size - index)
+                @Suppress("UNCHECKED_CAST")
+                return BitmapNode(bitmap or bit, newSlots as Array<Any>)
+            }
+
+            val slot = slots[index]
+            val newSlot = if (slot is Entry) {
+                when {
+                    slot.key != entry.key -> merge(slot, entry, shift + BITS)
+                    slot.value == entry.value -> return this
+                    else -> entry
+                }
+            }
+            else {
+                val newChild = (slot as Node).put(entry, shift + BITS)
+                if (newChild === slot) return this
+                newChild
+            }
+            return BitmapNode(bitmap, slots.copyOf().apply { this[index] = newSlot })
+        }
+
+        override fun remove(key: Any, hash: Int, shift: Int): Node? {
+            val bit = bit(hash, shift)
+            if (bitmap and bit == 0) return this
+            val index = index(bit)
+            val slot = slots[index]
+            if (slot is Entry) {
+                if (slot.key != key) return this
+                return removeSlot(bit, index)
+            }
+
+            val newChild = (slot as Node).remove(key, hash, shift + BITS)
+            return when {
+                newChild === slot -> this
+                newChild == null -> removeSlot(bit, index)
+                else -> BitmapNode(bitmap, slots.copyOf().apply { this[index] = newChild })
+            }
+        }
+
+        private fun removeSlot(bit: Int, index: Int): Node? {
+            if (slots.size == 1) return null
+            val newSlots = arrayOfNulls<Any>(slots.size - 1)
+            System.arraycopy(slots, 0, newSlots, 0, index)
+            System.arraycopy(slots, index + 1, newSlots, index, slots.size - index - 1)
+            @Suppress("UNCHECKED_CAST")
+            return BitmapNode(bitmap and bit.inv(), newSlots as Array<Any>)
+        }
+
+        override fun forEach(action: (Entry) -> Unit) {
+            for (slot in slots) {
+                if (slot is Entry) action(slot) else (slot as Node).forEach(action)
+            }
+        }
+
+        private fun index(bit: Int) = Integer.bitCount(bitmap and (bit - 1))
+    }
+
+    /**
+     * Holds entries whose keys have the same full hash code.
+     */
+    private class CollisionNode(val hash: Int, val entries: Array<Entry>) : Node() {
+        override fun get(key: Any, hash: Int, shift: Int): Any? {
+            if (hash != this.hash) return null
+            return entries.firstOrNull { it.key == key }?.value
+        }
+
+        override fun put(entry: Entry, shift: Int): Node {
+            if (entry.hash != hash) {
+                return BitmapNode(bit(hash, shift), arrayOf<Any>(this)).put(entry, shift)
+            }
+            val index = entries.indexOfFirst { it.key == entry.key }
+            if (index < 0) return CollisionNode(hash, arrayOf(*entries, entry))
+            if (entries[index].value == entry.value) return this
+            return CollisionNode(hash, entries.copyOf().apply { this[index] = entry })
+        }
+
+        override fun remove(key: Any, hash: Int, shift: Int): Node? {
+            if (hash != this.hash) return this
+            val index = entries.indexOfFirst { it.key == key }
+            if (index < 0) return this
+            if (entries.size == 1) return null
+            return CollisionNode(hash, entries.filterIndexed { i, entry -> i != index }.toTypedArray())
+        }
+
+        override fun forEach(action: (Entry) -> Unit) {
+            entries.forEach(action)
+        }
+    }
+
+    fun isEmpty(): Boolean = size == 0
+
+    operator fun get(key: K): V? {
+        @Suppress("UNCHECKED_CAST")
+        return root?.get(key, key.hashCode(), 0) as V?
+    }
+
+    fun containsKey(key: K): Boolean = get(key) != null
+
+    fun put(key: K, value: V): PersistentTrieMap<K, V> {
+        val entry = Entry(key, value, key.hashCode())
+        if (root == null) return PersistentTrieMap(BitmapNode(bit(entry.hash, 0), arrayOf<Any>(entry)), 1)
+
+        val newRoot = root.put(entry, 0)
+        if (newRoot === root) return this
+        return PersistentTrieMap(newRoot, if (root.get(key, entry.hash, 0) == null) size + 1 else size)
+    }
+
+    fun remove(key: K): PersistentTrieMap<K, V> {
+        if (root == null) return this
+        val newRoot = root.remove(key, key.hashCode(), 0)
+        if (newRoot === root) return this
+        return if (newRoot == null) empty() else PersistentTrieMap(newRoot, size - 1)
+    }
+
+    fun forEach(action: (K, V) -> Unit) {
+        @Suppress("UNCHECKED_CAST")
+        root?.forEach { entry -> action(entry.key as K, entry.value as V) }
+    }
+
+    fun toMap(): MutableMap<K, V> {
+        val result = LinkedHashMap<K, V>(size * 2)
+        forEach { key, value -> result.put(key, value) }
+        return result
+    }
+
+    override fun toString(): String = toMap().toString()
+
+    companion object {
+        private const val BITS = 5
+        private const val MASK = (1 shl BITS) - 1
+
+        private val EMPTY = PersistentTrieMap<Any, Any>(null, 0)
+
+        @Suppress("UNCHECKED_CAST")
+        fun <K : Any, V : Any> empty(): PersistentTrieMap<K, V> = EMPTY as PersistentTrieMap<K, V>
+
+        private fun bit(hash: Int, shift: Int): Int = 1 shl ((hash ushr shift) and MASK)
+
+        private fun merge(first: Entry, second: Entry, shift: Int): Node {
+            if (first.hash == second.hash) return CollisionNode(first.hash, arrayOf(first, second))
+
+            val firstIndex = (first.hash ushr shift) and MASK
+            val secondIndex = (second.hash ushr shift) and MASK
+            if (firstIndex == secondIndex) {
+                return BitmapNode(1 shl firstIndex, arrayOf<Any>(merge(first, second, shift + BITS)))
+            }
+            val slots = if (firstIndex < secondIndex) arrayOf<Any>(first, second) else arrayOf<Any>(second, first)
+            return BitmapNode((1 shl firstIndex) or (1 shl secondIndex), slots)
+        }
+    }
+}
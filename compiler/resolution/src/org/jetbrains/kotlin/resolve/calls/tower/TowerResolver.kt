@@ -24,6 +24,7 @@ import org.jetbrains.kotlin.resolve.calls.tasks.ExplicitReceiverKind
 import org.jetbrains.kotlin.resolve.scopes.ImportingScope
 import org.jetbrains.kotlin.resolve.scopes.LexicalScope
 import org.jetbrains.kotlin.resolve.scopes.receivers.ReceiverValueWithSmartCastInfo
+import org.jetbrains.kotlin.resolve.scopes.utils.getLocalScopesWithDeclarations
 import org.jetbrains.kotlin.resolve.scopes.utils.parentsWithSelf
 import org.jetbrains.kotlin.utils.addToStdlib.check
 import java.util.*
@@ -106,9 +107,7 @@ class TowerResolver {
     ): Collection<C> {
         fun TowerData.process() = processTowerData(processor, resultCollector, useOrder, this)
 
-        val localLevels = lexicalScope.parentsWithSelf.
-                filterIsInstance<LexicalScope>().filter { it.kind.withLocalDescriptors }.
-                map { ScopeBasedTowerLevel(this@run, it) }
+        val localLevels = lexicalScope.getLocalScopesWithDeclarations().map { ScopeBasedTowerLevel(this@run, it) }
 
         // Lazy calculation
         var nonLocalLevels: Collection<ScopeTowerLevel>? = null
@@ -22,6 +22,7 @@ import org.jetbrains.kotlin.descriptors.FunctionDescriptor
 import org.jetbrains.kotlin.descriptors.VariableDescriptor
 import org.jetbrains.kotlin.incremental.components.LookupLocation
 import org.jetbrains.kotlin.name.Name
+import org.jetbrains.kotlin.resolve.scopes.utils.getLocalScopesWithDeclarations
 import org.jetbrains.kotlin.resolve.scopes.utils.takeSnapshot
 import org.jetbrains.kotlin.utils.SmartList
 import java.util.*
@@ -45,6 +46,11 @@ abstract class LexicalScopeStorage(
     private var functionsByName: MutableMap<Name, IntList>? = null
     private var variablesAndClassifiersByName: MutableMap<Name, IntList>? = null
 
+    // parent is a snapshot, so this is computed once and shared by all scopes nested in this one
+    private val parentLocalScopesWithDeclarations by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        parent.getLocalScopesWithDeclarations()
+    }
+
     override fun getContributedClassifier(name: Name, location: LookupLocation) = variableOrClassDescriptorByName(name) as? ClassifierDescriptor
     override fun getContributedVariables(name: Name, location: LookupLocation) = listOfNotNull(variableOrClassDescriptorByName(name) as? VariableDescriptor)
 
@@ -76,6 +82,11 @@ abstract class LexicalScopeStorage(
         functionsByName!![name] = functionsByName!![name] + descriptorIndex
     }
 
+    internal fun getLocalScopesWithDeclarations(scope: LexicalScope, descriptorLimit: Int = addedDescriptors.size): List<LexicalScope> {
+        if (!kind.withLocalDescriptors || descriptorLimit == 0) return parentLocalScopesWithDeclarations
+        return listOf(scope) + parentLocalScopesWithDeclarations
+    }
+
     protected fun variableOrClassDescriptorByName(name: Name, descriptorLimit: Int = addedDescriptors.size): DeclarationDescriptor? {
         if (descriptorLimit == 0) return null
 
@@ -65,7 +65,10 @@ class LexicalWritableScope(
         }
     }
 
-    private inner class Snapshot(val descriptorLimit: Int) : LexicalScope by this {
+    internal inner class Snapshot(val descriptorLimit: Int) : LexicalScope by this {
+        val localScopesWithDeclarations: List<LexicalScope>
+            get() = getLocalScopesWithDeclarations(this, descriptorLimit)
+
         override fun getContributedDescriptors(kindFilter: DescriptorKindFilter, nameFilter: (Name) -> Boolean)
                 = addedDescriptors.subList(0, descriptorLimit)
 
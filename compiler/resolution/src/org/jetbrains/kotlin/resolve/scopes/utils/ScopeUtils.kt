@@ -47,6 +47,22 @@ fun LexicalScope.getDeclarationsByLabel(labelName: Name): Collection<Declaration
     }
 }
 
+/**
+ * Returns local scopes of the chain which may contain declarations, the most local one first.
+ * Empty scopes (e.g. blocks of lambdas in DSL-like code) can't contribute any candidates to a call, so call resolution skips them.
+ * The result for the parents of a local scope is computed once and shared by all expressions in that scope.
+ */
+fun HierarchicalScope.getLocalScopesWithDeclarations(): List<LexicalScope> = when (this) {
+    is ImportingScope -> emptyList()
+    is LexicalScopeStorage -> getLocalScopesWithDeclarations(this)
+    is LexicalWritableScope.Snapshot -> localScopesWithDeclarations
+    is LexicalScope -> {
+        val parentScopes = parent.getLocalScopesWithDeclarations()
+        if (kind.withLocalDescriptors) listOf(this) + parentScopes else parentScopes
+    }
+    else -> parent?.getLocalScopesWithDeclarations() ?: emptyList()
+}
+
 // Result is guaranteed to be filtered by kind and name.
 fun HierarchicalScope.collectDescriptorsFiltered(
         kindFilter: DescriptorKindFilter = DescriptorKindFilter.ALL,
@@ -0,0 +1,29 @@
+class Calculator {
+    private fun <T : Number> twice(x: T): Int = x.toInt() * 2
+
+    private fun <T> id(x: T): T = x
+
+    private fun <T : Comparable<T>> max(a: T, b: T): T = if (a > b) a else b
+
+    private fun describe(x: Any): String = "[$x]"
+
+    fun sum(n: Int, b: Long): Long {
+        var result = 0L
+        for (i in 0..n) {
+            result += twice(i) + id(b)
+        }
+        return result
+    }
+
+    fun maxChar(a: Char, b: Char): Char = max(a, b)
+
+    fun describeAll(): String = describe(1) + describe(2L) + describe('c')
+}
+
+fun box(): String {
+    val calculator = Calculator()
+    if (calculator.sum(3, 10L) != 52L) return "fail sum: ${calculator.sum(3, 10L)}"
+    if (calculator.maxChar('a', 'z') != 'z') return "fail max"
+    if (calculator.describeAll() != "[1][2][c]") return "fail describe: ${calculator.describeAll()}"
+    return "OK"
+}
@@ -0,0 +1,43 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun box(): String {
+    var s = ""
+    for ((index, value) in arrayOf("a", "b", "c").withIndex()) {
+        s += "$index:$value;"
+    }
+    assertEquals("0:a;1:b;2:c;", s)
+
+    s = ""
+    for ((index, value) in intArrayOf(10, 20).withIndex()) {
+        s += index * 100 + value
+    }
+    assertEquals("10120", s)
+
+    s = ""
+    for ((index) in longArrayOf(1L, 2L).withIndex()) {
+        s += index
+    }
+    assertEquals("01", s)
+
+    s = ""
+    for ((index, value) in arrayOf<Int?>(null, 1).withIndex()) {
+        s += "$index:$value;"
+    }
+    assertEquals("0:null;1:1;", s)
+
+    s = ""
+    for ((index, value) in charArrayOf().withIndex()) {
+        s += "$index:$value;"
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (indexedValue in booleanArrayOf(true).withIndex()) {
+        s += indexedValue
+    }
+    assertEquals("IndexedValue(index=0, value=true)", s)
+
+    return "OK"
+}
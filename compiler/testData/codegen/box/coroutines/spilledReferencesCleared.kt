@@ -0,0 +1,37 @@
+class Controller {
+    var continuation: Continuation<String>? = null
+
+    suspend fun suspendHere(v: String, x: Continuation<String>) {
+        continuation = x
+        lastValue = v
+    }
+
+    var lastValue = ""
+}
+
+fun builder(coroutine c: Controller.() -> Continuation<Unit>): Controller {
+    val controller = Controller()
+    c(controller).resume(Unit)
+    return controller
+}
+
+fun box(): String {
+    var result = ""
+
+    val controller = builder {
+        val a = suspendHere("a")
+        val b = suspendHere("b")
+        result = a + b + suspendHere("c")
+        for (i in 1..2) {
+            result += suspendHere(i.toString())
+        }
+    }
+
+    while (controller.continuation != null) {
+        val continuation = controller.continuation!!
+        controller.continuation = null
+        continuation.resume(controller.lastValue.toUpperCase())
+    }
+
+    return if (result == "ABC12") "OK" else "Fail: $result"
+}
@@ -0,0 +1,21 @@
+import kotlin.reflect.KProperty
+
+class Name {
+    operator fun getValue(thisRef: Any?, property: KProperty<*>): String = property.name
+}
+
+class A {
+    val a by lazy { "a" }
+    val b by Name()
+    val c by lazy { "c" }
+    val d by Name()
+}
+
+val x by lazy { "x" }
+val y by Name()
+
+fun box(): String {
+    val a = A()
+    val result = a.a + a.b + a.c + a.d + x + y
+    return if (result == "abcdxy") "OK" else "Fail: $result"
+}
@@ -0,0 +1,61 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun box(): String {
+    var s = ""
+    for (i in (1..4).reversed()) {
+        s += i
+    }
+    assertEquals("4321", s)
+
+    s = ""
+    for (i in (4 downTo 1).reversed()) {
+        s += i
+    }
+    assertEquals("1234", s)
+
+    s = ""
+    for (i in (1 until 4).reversed()) {
+        s += i
+    }
+    assertEquals("321", s)
+
+    s = ""
+    for (i in (0 until Int.MIN_VALUE).reversed()) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in (Long.MIN_VALUE until Long.MIN_VALUE + 2).reversed()) {
+        s += i
+    }
+    assertEquals("-9223372036854775807-9223372036854775808", s)
+
+    s = ""
+    for (c in ('a'..'c').reversed()) {
+        s += c
+    }
+    assertEquals("cba", s)
+
+    s = ""
+    for (i in intArrayOf(10, 20, 30).indices.reversed()) {
+        s += i
+    }
+    assertEquals("210", s)
+
+    s = ""
+    for (i in listOf<String>().indices.reversed()) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in "abc".indices.reversed()) {
+        s += i
+    }
+    assertEquals("210", s)
+
+    return "OK"
+}
@@ -0,0 +1,113 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun box(): String {
+    var s = ""
+    for (i in 1..10 step 3) {
+        s += i
+    }
+    assertEquals("14710", s)
+
+    s = ""
+    for (i in 10 downTo 1 step 4) {
+        s += i
+    }
+    assertEquals("1062", s)
+
+    s = ""
+    for (i in 1 until 10 step 3) {
+        s += i
+    }
+    assertEquals("147", s)
+
+    s = ""
+    for (i in 1 until 1 step 2) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in 0 until Int.MIN_VALUE step 2) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in Int.MAX_VALUE - 5..Int.MAX_VALUE step 3) {
+        s += i
+    }
+    assertEquals("21474836422147483645", s)
+
+    s = ""
+    for (i in Int.MIN_VALUE + 5 downTo Int.MIN_VALUE step 3) {
+        s += i
+    }
+    assertEquals("-2147483643-2147483646", s)
+
+    s = ""
+    for (i in 1L..10L step 4L) {
+        s += i
+    }
+    assertEquals("159", s)
+
+    s = ""
+    for (c in 'a'..'h' step 3) {
+        s += c
+    }
+    assertEquals("adg", s)
+
+    s = ""
+    for (c in 'h' downTo 'a' step 3) {
+        s += c
+    }
+    assertEquals("heb", s)
+
+    s = ""
+    for (c in 'a' until 'h' step 3) {
+        s += c
+    }
+    assertEquals("adg", s)
+
+    val order = StringBuilder()
+    for (i in order.add(1)..order.add(2) step order.add(3)) {
+    }
+    assertEquals("123", order.toString())
+
+    try {
+        for (i in 1..10 step 0) {
+            return "Fail: loop with zero step"
+        }
+        return "Fail: no exception for zero step"
+    }
+    catch (e: IllegalArgumentException) {
+        assertEquals("Step must be positive, was: 0.", e.message)
+    }
+
+    try {
+        for (i in 10 until 1 step -1) {
+            return "Fail: loop with negative step"
+        }
+        return "Fail: no exception for negative step"
+    }
+    catch (e: IllegalArgumentException) {
+        assertEquals("Step must be positive, was: -1.", e.message)
+    }
+
+    try {
+        for (i in 1L..10L step -2L) {
+            return "Fail: loop with negative long step"
+        }
+        return "Fail: no exception for negative long step"
+    }
+    catch (e: IllegalArgumentException) {
+        assertEquals("Step must be positive, was: -2.", e.message)
+    }
+
+    return "OK"
+}
+
+fun StringBuilder.add(i: Int): Int {
+    append(i)
+    return i
+}
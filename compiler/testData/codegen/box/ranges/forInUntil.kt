@@ -0,0 +1,55 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun box(): String {
+    var s = ""
+    for (i in 1 until 4) {
+        s += i
+    }
+    assertEquals("123", s)
+
+    s = ""
+    for (i in 1 until 1) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in 0 until Int.MIN_VALUE) {
+        s += i
+    }
+    assertEquals("", s)
+
+    s = ""
+    for (i in Int.MAX_VALUE - 1 until Int.MAX_VALUE) {
+        s += i
+    }
+    assertEquals("2147483646", s)
+
+    s = ""
+    for (i in Long.MIN_VALUE until Long.MIN_VALUE + 2) {
+        s += i
+    }
+    assertEquals("-9223372036854775808-9223372036854775807", s)
+
+    s = ""
+    for (i in 1 until 3L) {
+        s += i
+    }
+    assertEquals("12", s)
+
+    s = ""
+    for (c in 'a' until 'd') {
+        s += c
+    }
+    assertEquals("abc", s)
+
+    s = ""
+    for (c in 'a' until '\u0000') {
+        s += c
+    }
+    assertEquals("", s)
+
+    return "OK"
+}
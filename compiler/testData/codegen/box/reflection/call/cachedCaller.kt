@@ -0,0 +1,50 @@
+// WITH_REFLECT
+// FULL_JDK
+
+import java.lang.reflect.InvocationTargetException
+import kotlin.reflect.*
+import kotlin.reflect.jvm.*
+import kotlin.test.*
+
+class A(var x: Int) {
+    fun foo(y: Long, z: String): String = "$x$y$z"
+
+    private fun bar(): String = "bar"
+
+    fun fail(): Unit = throw IllegalStateException("fail")
+}
+
+fun box(): String {
+    val a = A(1)
+    val foo = A::foo
+
+    repeat(3) {
+        assertEquals("12z", foo.call(a, 2L, "z"))
+        // Java reflection applies widening primitive conversions to arguments
+        assertEquals("12z", foo.call(a, 2, "z"))
+        assertFailsWith<IllegalArgumentException> { foo.call(a, "2", "z") }
+        assertFailsWith<IllegalArgumentException> { foo.call(a, null, "z") }
+        assertFailsWith<NullPointerException> { foo.call(null, 2L, "z") }
+
+        try {
+            A::fail.call(a)
+            return "Fail: no exception was thrown"
+        }
+        catch (e: InvocationTargetException) {
+            assertEquals("fail", e.targetException.message)
+        }
+
+        assertEquals(Unit, A::x.setter.call(a, 2))
+        assertEquals(2, A::x.call(a))
+        a.x = 1
+    }
+
+    val bar = A::class.declaredFunctions.single { it.name == "bar" }
+    assertFailsWith<IllegalCallableAccessException> { bar.call(a) }
+    bar.isAccessible = true
+    assertEquals("bar", bar.call(a))
+    bar.isAccessible = false
+    assertFailsWith<IllegalCallableAccessException> { bar.call(a) }
+
+    return "OK"
+}
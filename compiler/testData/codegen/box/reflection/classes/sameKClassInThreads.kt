@@ -0,0 +1,28 @@
+// WITH_REFLECT
+// FULL_JDK
+
+import kotlin.reflect.KClass
+
+class A
+
+fun box(): String {
+    val classes = listOf(A::class.java, String::class.java, Int::class.javaObjectType, IntArray::class.java)
+    val expected = classes.map { it.kotlin }
+    val results = arrayOfNulls<List<KClass<*>>>(8)
+
+    val threads = (0..results.size - 1).map { index ->
+        Thread {
+            results[index] = (1..1000).flatMap { classes.map { it.kotlin } }
+        }
+    }
+    threads.forEach(Thread::start)
+    threads.forEach(Thread::join)
+
+    for (result in results) {
+        for ((index, kClass) in result!!.withIndex()) {
+            if (kClass !== expected[index % classes.size]) return "Fail: another instance of $kClass"
+        }
+    }
+
+    return "OK"
+}
@@ -0,0 +1,36 @@
+// WITH_REFLECT
+
+import kotlin.reflect.*
+import kotlin.test.*
+
+open class A {
+    val inherited: String = "inherited"
+    private val privateInA: String = ""
+}
+
+class B : A() {
+    val declared: String = "declared"
+    var mutable: Int = 42
+    val Any.extension: String get() = ""
+    fun function() {}
+}
+
+fun box(): String {
+    val b = B()
+
+    assertEquals("declared", B::class.findMemberProperty("declared")!!.get(b))
+    assertEquals("inherited", B::class.findMemberProperty("inherited")!!.get(b))
+    assertEquals(42, B::class.findMemberProperty("mutable")!!.get(b))
+    assertTrue(B::class.findMemberProperty("mutable") is KMutableProperty1<*, *>)
+    assertEquals(B::declared, B::class.findMemberProperty("declared"))
+
+    assertNull(B::class.findMemberProperty("privateInA"))
+    assertNull(B::class.findMemberProperty("extension"))
+    assertNull(B::class.findMemberProperty("function"))
+    assertNull(B::class.findMemberProperty("absent"))
+
+    assertEquals(B::class.memberProperties.map { it.name }.toSet(),
+                 B::class.memberProperties.map { B::class.findMemberProperty(it.name)!!.name }.toSet())
+
+    return "OK"
+}
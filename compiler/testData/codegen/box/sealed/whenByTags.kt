@@ -0,0 +1,54 @@
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.SEALED_CLASS_TAGS
+
+sealed class Expr {
+    class Const(val value: Int) : Expr()
+    class Neg(val arg: Expr) : Expr()
+
+    sealed class Binary(val left: Expr, val right: Expr) : Expr() {
+        class Plus(left: Expr, right: Expr) : Binary(left, right)
+        class Times(left: Expr, right: Expr) : Binary(left, right)
+    }
+
+    open class Var(val name: String) : Expr()
+    object Zero : Expr()
+}
+
+class X : Expr.Var("x")
+
+fun eval(e: Expr, x: Int): Int = when (e) {
+    is Expr.Const -> e.value
+    is Expr.Neg -> -eval(e.arg, x)
+    is Expr.Binary.Plus -> eval(e.left, x) + eval(e.right, x)
+    is Expr.Binary.Times -> eval(e.left, x) * eval(e.right, x)
+    is Expr.Var -> x
+    is Expr.Zero -> 0
+}
+
+fun kind(e: Expr?): String = when (e) {
+    is Expr.Binary -> "binary"
+    is Expr.Const, is Expr.Zero -> "const"
+    else -> "other"
+}
+
+fun countNegations(e: Expr): Int {
+    var result = 0
+    when (e) {
+        is Expr.Neg -> result = 1 + countNegations(e.arg)
+    }
+    return result
+}
+
+fun box(): String {
+    val e = Expr.Binary.Plus(Expr.Binary.Times(Expr.Const(2), X()), Expr.Neg(Expr.Neg(Expr.Zero)))
+    if (eval(e, 10) != 20) return "Fail eval: ${eval(e, 10)}"
+
+    if (kind(e) != "binary") return "Fail kind binary"
+    if (kind(Expr.Zero) != "const") return "Fail kind const"
+    if (kind(X()) != "other") return "Fail kind X"
+    if (kind(null) != "other") return "Fail kind null"
+
+    if (countNegations(Expr.Neg(Expr.Neg(Expr.Const(1)))) != 2) return "Fail countNegations"
+    if (countNegations(e) != 0) return "Fail countNegations 0"
+
+    return "OK"
+}
@@ -0,0 +1,17 @@
+class A {
+    private fun <T : Number> twice(x: T): Int = x.toInt() * 2
+
+    private fun <T> id(x: T): T = x
+
+    fun test(n: Int, b: Long): Long {
+        var result = 0L
+        for (i in 0..n) {
+            result += twice(i) + id(b)
+        }
+        return result
+    }
+}
+
+// 0 valueOf
+// 1 INVOKESPECIAL A\.twice\$specialized \(I\)I
+// 1 INVOKESPECIAL A\.id\$specialized \(J\)J
@@ -0,0 +1,16 @@
+private fun <T> id(x: T): T = x
+
+private val <T> T.self: T
+    get() = this
+
+fun test(n: Int): Int {
+    var result = 0
+    for (i in 0..n) {
+        result += id(i) + i.self
+    }
+    return result
+}
+
+// 0 valueOf
+// 1 INVOKESTATIC PrivateGenericHelpersInFileKt\.id\$specialized \(I\)I
+// 1 INVOKESTATIC PrivateGenericHelpersInFileKt\.getSelf\$specialized \(I\)I
@@ -0,0 +1,13 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.COMPACT_NULL_CHECKS
+
+fun foo(s: String, t: String?): String {
+    val property: String = System.getProperty("foo")
+    return s + t + property
+}
+
+// 0 checkParameterIsNotNull
+// 0 checkExpressionValueIsNotNull
+// 2 IFNONNULL
+// 1 INVOKESTATIC kotlin/jvm/internal/Intrinsics.throwParameterIsNull
+// 1 INVOKESTATIC kotlin/jvm/internal/Intrinsics.throwExpressionValueIsNull
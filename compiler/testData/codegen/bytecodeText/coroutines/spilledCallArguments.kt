@@ -0,0 +1,25 @@
+class Controller {
+    suspend fun suspendHere(v: String, x: Continuation<String>) {
+        x.resume(v)
+    }
+}
+
+fun builder(coroutine c: Controller.() -> Continuation<Unit>) {
+    c(Controller()).resume(Unit)
+}
+
+fun box(): String {
+    var result = ""
+
+    builder {
+        val o = suspendHere("O")
+        val k = suspendHere("K")
+        result = o + k
+    }
+
+    return result
+}
+
+// Receivers and arguments of suspension calls are dead after them, so only 'o' is saved to a field
+// 1 private volatile Ljava/lang/Object; L\$0
+// 0 L\$1
@@ -0,0 +1,13 @@
+// WITH_RUNTIME
+
+fun test(a: IntArray): Int {
+    var sum = 0
+    for ((index, value) in a.withIndex()) {
+        sum += index * value
+    }
+    return sum
+}
+
+// 0 withIndex
+// 0 iterator
+// 0 IndexedValue
@@ -0,0 +1,21 @@
+// WITH_RUNTIME
+
+fun test(a: IntArray): Int {
+    var sum = 0
+    for (i in (1..4).reversed()) {
+        sum = sum * 10 + i
+    }
+    for (i in (0 until 4).reversed()) {
+        sum = sum * 10 + i
+    }
+    for (i in a.indices.reversed()) {
+        sum += a[i]
+    }
+    return sum
+}
+
+// 0 iterator
+// 0 reversed
+// 0 until
+// 0 getFirst
+// 0 getLast
@@ -0,0 +1,25 @@
+// WITH_RUNTIME
+
+fun test(a: Int, b: Int, c: Int): Int {
+    var sum = 0
+    for (i in a..b step c) {
+        sum = sum * 10 + i
+    }
+    for (i in b downTo a step c) {
+        sum = sum * 10 + i
+    }
+    for (i in a until b step c) {
+        sum = sum * 10 + i
+    }
+    return sum
+}
+
+// 0 iterator
+// 0 step
+// 0 until
+// 0 downTo
+// 0 IntRange
+// 0 IntProgression
+// 0 getFirst
+// 0 getLast
+// 3 INVOKESTATIC kotlin/internal/ProgressionUtilKt.getProgressionLastElement \(III\)I
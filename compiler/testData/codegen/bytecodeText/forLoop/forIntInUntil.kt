@@ -0,0 +1,14 @@
+// WITH_RUNTIME
+
+fun test(): Int {
+    var sum = 0
+    for (i in 1 until 5) {
+        sum = sum * 10 + i
+    }
+    return sum
+}
+
+// 0 iterator
+// 0 until
+// 0 getFirst
+// 0 getLast
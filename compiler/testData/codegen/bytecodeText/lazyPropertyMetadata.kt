@@ -0,0 +1,7 @@
+class A {
+    val x by lazy { 1 }
+    val y by lazy { "y" }
+}
+
+// 0 \$\$delegatedProperties
+// 0 PropertyReference1Impl
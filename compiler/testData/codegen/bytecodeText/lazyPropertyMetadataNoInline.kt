@@ -0,0 +1,9 @@
+// KOTLIN_CONFIGURATION_FLAGS: +COMMON.DISABLE_INLINE
+
+class A {
+    val x by lazy { 1 }
+    val y by lazy { "y" }
+}
+
+// 2 GETSTATIC A.\$\$delegatedProperties
+// 2 NEW kotlin/jvm/internal/PropertyReference1Impl
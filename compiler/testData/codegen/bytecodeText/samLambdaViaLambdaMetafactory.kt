@@ -0,0 +1,23 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.USE_LAMBDA_METAFACTORY
+
+import java.util.concurrent.Callable
+
+class A(val z: String) {
+    fun nonCapturing(): Runnable = Runnable { System.out.println() }
+
+    fun capturingValues(x: Int, y: Long): Callable<String> = Callable { "$x$y$z" }
+
+    fun capturingVariable(): Runnable {
+        var counter = 0
+        return Runnable { counter++ }
+    }
+}
+
+// 3 INVOKEDYNAMIC
+// 1 INVOKEDYNAMIC run\(\)Ljava/lang/Runnable;
+// 1 INVOKEDYNAMIC call\(LA;IJ\)Ljava/util/concurrent/Callable;
+// 1 INVOKEDYNAMIC run\(Lkotlin/jvm/internal/Ref\$IntRef;\)Ljava/lang/Runnable;
+// 3 private static synthetic lambda\$
+// 0 implements java/lang/Runnable
+// 0 implements java/util/concurrent/Callable
@@ -0,0 +1,20 @@
+// JVM_TARGET: 9
+
+fun template(a: String, b: Int) = "a=$a, b=$b, c=${'c'}"
+
+fun plus(a: String, b: Long) = a + b + "!"
+
+fun nullablePlus(a: String?, b: Any?) = a + b
+
+fun plusAssign(a: String, b: Array<String>): String {
+    var result = a
+    result += b
+    return result
+}
+
+// 0 NEW java/lang/StringBuilder
+// 0 stringPlus
+// 4 INVOKEDYNAMIC makeConcatWithConstants
+// 1 makeConcatWithConstants\(Ljava/lang/String;I\)Ljava/lang/String;
+// 1 makeConcatWithConstants\(Ljava/lang/String;J\)Ljava/lang/String;
+// 2 makeConcatWithConstants\(Ljava/lang/String;Ljava/lang/Object;\)Ljava/lang/String;
@@ -0,0 +1,21 @@
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.SEALED_CLASS_TAGS
+
+sealed class A {
+    class B : A()
+    class C : A()
+    object D : A()
+}
+
+fun test(a: A) = when (a) {
+    is A.B -> 1
+    is A.C -> 2
+    is A.D -> 3
+}
+
+fun box(): String = if (test(A.C()) == 2) "OK" else "Fail"
+
+// 1 TABLESWITCH
+// 1 GETSTATIC A\.\$sealedTags : I
+// 1 INVOKEVIRTUAL A\.\$sealedTag \(\)I
+// 4 public synthetic \$sealedTag\(\)I
+// 3 INSTANCEOF
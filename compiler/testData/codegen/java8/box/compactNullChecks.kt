@@ -0,0 +1,43 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.COMPACT_NULL_CHECKS
+// FILE: JavaCall.java
+
+class JavaCall {
+    static String nullString() {
+        return null;
+    }
+
+    static String callLength() {
+        return Integer.toString(CompactNullChecksKt.length(null));
+    }
+}
+
+// FILE: compactNullChecks.kt
+
+fun length(s: String): Int = s.length
+
+inline fun <T> inlineCall(block: () -> T): T = block()
+
+fun box(): String {
+    if (inlineCall { length("OK") } != 2) return "Fail inline"
+
+    try {
+        JavaCall.callLength()
+        return "Fail parameter"
+    }
+    catch (e: IllegalArgumentException) {
+        if (e.message != "Parameter specified as non-null is null: method CompactNullChecksKt.length, parameter s") {
+            return "Fail parameter message: ${e.message}"
+        }
+    }
+
+    try {
+        val s: String = JavaCall.nullString()
+        return "Fail expression: $s"
+    }
+    catch (e: IllegalStateException) {
+        if (e.message != "JavaCall.nullString() must not be null") return "Fail expression message: ${e.message}"
+    }
+
+    return "OK"
+}
@@ -0,0 +1,43 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.USE_LAMBDA_METAFACTORY
+// FILE: JavaCall.java
+
+class JavaCall {
+    static String call(Test test) {
+        return test == null ? "null" : test.call("O");
+    }
+}
+
+// FILE: Test.java
+
+interface Test {
+    String call(String s);
+}
+
+// FILE: sam.kt
+
+fun box(): String {
+    val nullFunction: ((String) -> String)? = null
+    if (JavaCall.call(nullFunction) != "null") return "fail: null function"
+
+    val f = { s: String -> s + "K" }
+    if (JavaCall.call(f) != "OK") return "fail: function value"
+
+    if (JavaCall.call { s -> s + "K" } != "OK") return "fail: lambda"
+
+    if (JavaCall.call(fun(s: String) = s + "K") != "OK") return "fail: anonymous function"
+
+    val k = "K"
+    val n = 1L
+    if (JavaCall.call { s -> s + k + n } != "OK1") return "fail: captured values"
+
+    var counter = 0
+    JavaCall.call { s -> counter++; s }
+    if (counter != 1) return "fail: captured variable"
+
+    return A("K").call()
+}
+
+class A(val k: String) {
+    fun call() = JavaCall.call { s -> s + k }
+}
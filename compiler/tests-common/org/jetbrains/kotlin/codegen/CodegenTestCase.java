@@ -171,10 +171,13 @@ public abstract class CodegenTestCase extends KtUsefulTestCase {
 
     private static final Map<String, Class<?>> FLAG_NAMESPACE_TO_CLASS = ImmutableMap.of(
             "CLI", CLIConfigurationKeys.class,
-            "JVM", JVMConfigurationKeys.class
+            "JVM", JVMConfigurationKeys.class,
+            "COMMON", CommonConfigurationKeys.class
     );
 
-    private static final List<Class<?>> FLAG_CLASSES = ImmutableList.of(CLIConfigurationKeys.class, JVMConfigurationKeys.class);
+    private static final List<Class<?>> FLAG_CLASSES = ImmutableList.of(
+            CLIConfigurationKeys.class, JVMConfigurationKeys.class, CommonConfigurationKeys.class
+    );
 
     private static final Pattern BOOLEAN_FLAG_PATTERN = Pattern.compile("([+-])(([a-zA-Z_0-9]*)\\.)?([a-zA-Z_0-9]*)");
 
@@ -47,6 +47,12 @@ public class BlackBoxWithJava8CodegenTestGenerated extends AbstractBlackBoxCodeg
         doTest(fileName);
     }
 
+    @TestMetadata("compactNullChecks.kt")
+    public void testCompactNullChecks() throws Exception {
+        String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/compactNullChecks.kt");
+        doTest(fileName);
+    }
+
     @TestMetadata("defaultMethodCallFromInterface.kt")
     public void testDefaultMethodCallFromInterface() throws Exception {
         String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/defaultMethodCallFromInterface.kt");
@@ -101,6 +107,12 @@ public class BlackBoxWithJava8CodegenTestGenerated extends AbstractBlackBoxCodeg
         doTest(fileName);
     }
 
+    @TestMetadata("samConversionViaLambdaMetafactory.kt")
+    public void testSamConversionViaLambdaMetafactory() throws Exception {
+        String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/samConversionViaLambdaMetafactory.kt");
+        doTest(fileName);
+    }
+
     @TestMetadata("samOnInterfaceWithDefaultMethod.kt")
     public void testSamOnInterfaceWithDefaultMethod() throws Exception {
         String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/samOnInterfaceWithDefaultMethod.kt");
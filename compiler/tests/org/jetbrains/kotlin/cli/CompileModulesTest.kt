@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli
+
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+
+class CompileModulesTest : KtUsefulTestCase() {
+    // Outputs of modules of a chunk are written on a separate thread while the next module is generated
+    fun testSeveralModulesInChunk() {
+        val tmpdir = KotlinTestUtils.tmpDir(javaClass.simpleName)
+        val moduleCount = 3
+
+        val modules = (1..moduleCount).joinToString("\n") { i ->
+            val source = File(tmpdir, "src$i/A$i.kt")
+            source.parentFile.mkdirs()
+            source.writeText(if (i == 1) "class A1" else "class A$i { fun previous() = A${i - 1}() }")
+            """    <module name="m$i" outputDir="${File(tmpdir, "out$i").path}" type="java-production">
+        <sources path="${source.path}"/>
+    </module>"""
+        }
+        val moduleFile = File(tmpdir, "modules.xml")
+        moduleFile.writeText("<modules>\n$modules\n</modules>")
+
+        val (output, exitCode) = AbstractCliTest.executeCompilerGrabOutput(K2JVMCompiler(), listOf("-no-stdlib", "-module", moduleFile.path))
+        assertEquals(output, ExitCode.OK, exitCode)
+
+        for (i in 1..moduleCount) {
+            assertTrue("No output of module m$i:\n$output", File(tmpdir, "out$i/A$i.class").isFile)
+        }
+    }
+}
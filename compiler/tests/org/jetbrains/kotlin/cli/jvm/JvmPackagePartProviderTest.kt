@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import com.intellij.psi.search.GlobalSearchScope
+import com.intellij.testFramework.LightVirtualFile
+import com.intellij.util.io.URLUtil
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.JvmPackagePartProvider
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.compiler.SharedModuleMappings
+import org.jetbrains.kotlin.load.kotlin.JvmMetadataVersion
+import org.jetbrains.kotlin.serialization.jvm.JvmPackageTable
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+import org.jetbrains.kotlin.test.TestJdkKind
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.util.jar.JarOutputStream
+import java.util.zip.ZipEntry
+
+class JvmPackagePartProviderTest : KotlinTestWithEnvironment() {
+    private lateinit var tmpdir: File
+
+    // Module mapping files are loaded from here rather than from the jar, whose contents may be cached by the file system
+    private var mappingBytes = ByteArray(0)
+    private var loadCount = 0
+
+    override fun createEnvironment(): KotlinCoreEnvironment {
+        tmpdir = KotlinTestUtils.tmpDir("package-part-provider-test")
+
+        val jar = File(tmpdir, "lib1.jar")
+        JarOutputStream(FileOutputStream(jar)).use { output ->
+            output.putNextEntry(ZipEntry("META-INF/lib1.kotlin_module"))
+            output.write(moduleMapping("test" to listOf("AKt"), "other" to listOf("OKt")))
+            output.putNextEntry(ZipEntry("META-INF/lib1-extra.kotlin_module"))
+            output.write(moduleMapping("test" to listOf("ExtraKt")))
+        }
+
+        val directory = File(tmpdir, "lib2")
+        File(directory, "META-INF").mkdirs()
+        File(directory, "META-INF/lib2.kotlin_module").writeBytes(moduleMapping("test" to listOf("AKt", "BKt")))
+
+        val configuration = KotlinTestUtils.newConfiguration(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK, jar, directory)
+        return KotlinCoreEnvironment.createForTests(testRootDisposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES)
+    }
+
+    fun testPartsAreMergedFromAllRootsAndModules() {
+        val provider = JvmPackagePartProvider(environment, GlobalSearchScope.allScope(project))
+
+        assertSameElements(provider.findPackageParts("test"), "AKt", "ExtraKt", "BKt")
+        assertEquals(listOf("OKt"), provider.findPackageParts("other"))
+        assertEquals(emptyList<String>(), provider.findPackageParts("unknown"))
+    }
+
+    fun testChangedJarIsNotReadFromCache() {
+        val mappings = SharedModuleMappings(10)
+        val jar = File(tmpdir, "changed.jar")
+        jar.writeBytes(ByteArray(10))
+        val file = ModuleMappingFile(jar.path + URLUtil.JAR_SEPARATOR + "META-INF/changed.kotlin_module")
+
+        mappingBytes = moduleMapping("test" to listOf("AKt"))
+        assertEquals(listOf("AKt"), mappings.findPackageParts(file, "test"))
+        mappingBytes = moduleMapping("test" to listOf("AKt", "BKt"))
+        assertEquals(listOf("AKt"), mappings.findPackageParts(file, "test"))
+        assertEquals(1, loadCount)
+
+        val timeStamp = jar.lastModified()
+        jar.writeBytes(ByteArray(20))
+        jar.setLastModified(timeStamp)
+        assertEquals(listOf("AKt", "BKt"), mappings.findPackageParts(file, "test"))
+        assertEquals(2, loadCount)
+
+        mappingBytes = moduleMapping("test" to listOf("CKt"))
+        jar.setLastModified(timeStamp + 10000)
+        assertEquals(listOf("CKt"), mappings.findPackageParts(file, "test"))
+        assertEquals(3, loadCount)
+    }
+
+    fun testFileOutsideOfJarIsNotCached() {
+        val mappings = SharedModuleMappings(10)
+        val file = ModuleMappingFile(File(tmpdir, "lib2/META-INF/lib2.kotlin_module").path)
+
+        mappingBytes = moduleMapping("test" to listOf("AKt"))
+        mappings.getModuleMapping(file)
+        mappings.getModuleMapping(file)
+        assertEquals(2, loadCount)
+    }
+
+    private fun SharedModuleMappings.findPackageParts(file: ModuleMappingFile, packageFqName: String): List<String> =
+            getModuleMapping(file).findPackageParts(packageFqName)!!.parts.toList()
+
+    private inner class ModuleMappingFile(private val path: String) : LightVirtualFile(File(path).name) {
+        override fun getPath() = path
+
+        override fun contentsToByteArray(): ByteArray {
+            loadCount++
+            return mappingBytes
+        }
+    }
+}
+
+internal fun moduleMapping(vararg packageParts: Pair<String, List<String>>): ByteArray {
+    val table = JvmPackageTable.PackageTable.newBuilder()
+    for ((packageFqName, parts) in packageParts) {
+        table.addPackageParts(JvmPackageTable.PackageParts.newBuilder().setPackageFqName(packageFqName).addAllClassName(parts))
+    }
+
+    val result = ByteArrayOutputStream()
+    DataOutputStream(result).use { output ->
+        val version = JvmMetadataVersion.INSTANCE.toArray()
+        output.writeInt(version.size)
+        version.forEach { output.writeInt(it) }
+        table.build().writeTo(output)
+    }
+    return result.toByteArray()
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.backend.common.output.OutputFile
+import org.jetbrains.kotlin.backend.common.output.SimpleOutputBinaryFile
+import org.jetbrains.kotlin.cli.jvm.compiler.ParallelJarWriter
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+import java.io.FileOutputStream
+import java.util.jar.Attributes
+import java.util.jar.JarFile
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+
+class ParallelJarWriterTest : KtUsefulTestCase() {
+    private lateinit var tmpdir: File
+
+    override fun setUp() {
+        super.setUp()
+        tmpdir = KotlinTestUtils.tmpDir(javaClass.simpleName)
+    }
+
+    fun testOutputFiles() {
+        val files = mapOf(
+                "a/A.class" to ByteArray(10000) { (it % 7).toByte() },
+                "a/B.class" to ByteArray(0),
+                "META-INF/main.kotlin_module" to "module".toByteArray()
+        )
+
+        val jar = writeJar { writer -> writer.writeOutputFiles(files.map { outputFile(it.key, it.value) }) }
+
+        JarFile(jar).use { jarFile ->
+            assertEquals("Main", jarFile.manifest.mainAttributes.getValue(Attributes.Name.MAIN_CLASS))
+            assertEquals(listOf(JarFile.MANIFEST_NAME) + files.keys, jarFile.entries().toList().map { it.name })
+            for ((name, bytes) in files) {
+                assertEquals(name, bytes.toList(), jarFile.readEntry(name).toList())
+            }
+        }
+    }
+
+    fun testDuplicateEntry() {
+        try {
+            writeJar { writer -> writer.writeOutputFiles(listOf(outputFile("A.class", ByteArray(1)), outputFile("A.class", ByteArray(2)))) }
+            fail("Duplicate entry should not be written")
+        }
+        catch (e: ZipException) {
+            assertTrue(e.message, e.message!!.contains("A.class"))
+        }
+    }
+
+    fun testCopyStoredAndDeflatedClassFiles() {
+        val stored = ByteArray(1000) { it.toByte() }
+        val deflated = ByteArray(5000) { (it % 3).toByte() }
+
+        val library = File(tmpdir, "library.jar")
+        JarOutputStream(FileOutputStream(library)).use { output ->
+            output.putNextEntry(ZipEntry("lib/"))
+            output.putNextEntry(ZipEntry("lib/Stored.class").apply {
+                method = ZipEntry.STORED
+                size = stored.size.toLong()
+                crc = CRC32().apply { update(stored) }.value
+            })
+            output.write(stored)
+            output.putNextEntry(ZipEntry("lib/Deflated.class"))
+            output.write(deflated)
+            output.putNextEntry(ZipEntry("lib/resource.txt"))
+            output.write("resource".toByteArray())
+        }
+
+        val jar = writeJar { writer ->
+            writer.writeOutputFiles(listOf(outputFile("Main.class", ByteArray(100))))
+            writer.copyClassFiles(library)
+        }
+
+        JarFile(jar).use { jarFile ->
+            assertEquals(
+                    listOf(JarFile.MANIFEST_NAME, "Main.class", "lib/Stored.class", "lib/Deflated.class"),
+                    jarFile.entries().toList().map { it.name }
+            )
+            assertEquals(ZipEntry.STORED, jarFile.getEntry("lib/Stored.class").method)
+            assertEquals(stored.toList(), jarFile.readEntry("lib/Stored.class").toList())
+            assertEquals(ZipEntry.DEFLATED, jarFile.getEntry("lib/Deflated.class").method)
+            assertEquals(deflated.toList(), jarFile.readEntry("lib/Deflated.class").toList())
+        }
+    }
+
+    fun testTooManyEntriesForPlainArchive() {
+        val count = 0x10000 + 10
+
+        val jar = writeJar { writer -> writer.writeOutputFiles((1..count).map { outputFile("C$it.class", byteArrayOf(it.toByte())) }) }
+
+        JarFile(jar).use { jarFile ->
+            assertEquals(count + 1, jarFile.size())
+            assertEquals(listOf(count.toByte()), jarFile.readEntry("C$count.class").toList())
+        }
+    }
+
+    private fun writeJar(write: (ParallelJarWriter) -> Unit): File {
+        val jar = File(tmpdir, "output.jar")
+        FileOutputStream(jar).use { output ->
+            ParallelJarWriter(output).use { writer ->
+                writer.writeManifest(Manifest().apply {
+                    mainAttributes.putValue("Manifest-Version", "1.0")
+                    mainAttributes.putValue("Main-Class", "Main")
+                })
+                write(writer)
+                writer.finish()
+            }
+        }
+        return jar
+    }
+
+    private fun outputFile(name: String, bytes: ByteArray): OutputFile = SimpleOutputBinaryFile(emptyList(), name, bytes)
+
+    private fun JarFile.readEntry(name: String): ByteArray = getInputStream(getEntry(name)).use { it.readBytes() }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.util.io.URLUtil
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.codegen.ClassBuilderFactories
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.config.JVMConfigurationKeys
+import org.jetbrains.kotlin.config.JvmTarget
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.resolve.lazy.JvmResolveUtil
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+import org.jetbrains.org.objectweb.asm.ClassWriter
+import org.jetbrains.org.objectweb.asm.Opcodes.*
+import org.jetbrains.org.objectweb.asm.commons.Method
+import java.io.File
+import java.io.FileOutputStream
+import java.util.jar.JarOutputStream
+import java.util.zip.ZipEntry
+
+class SharedInlineCacheTest : KotlinTestWithEnvironment() {
+    private lateinit var tmpdir: File
+    private lateinit var state: GenerationState
+
+    private val classId = ClassId.topLevel(FqName("test.A"))
+    private val methodA = Method("a", "()I")
+    private val methodB = Method("b", "()I")
+    private val methodC = Method("c", "()I")
+
+    // Class files are loaded from here rather than from the jar, whose contents may be cached by the file system
+    private var classBytes = ByteArray(0)
+    private var loadCount = 0
+
+    override fun createEnvironment(): KotlinCoreEnvironment =
+            KotlinCoreEnvironment.createForTests(testRootDisposable, KotlinTestUtils.newConfiguration(), EnvironmentConfigFiles.JVM_CONFIG_FILES)
+
+    override fun setUp() {
+        super.setUp()
+        tmpdir = KotlinTestUtils.tmpDirForTest(this)
+        state = createState(JvmTarget.JVM_1_6)
+    }
+
+    fun testHitReturnsCopyOwnedByCaller() {
+        val cache = SharedInlineCache(1000)
+        val jar = writeJar(V1_6, 1)
+        val file = jarEntry(jar)
+
+        val first = cache.get(file, methodA)
+        val size = first.node.instructions.size()
+        first.node.instructions.clear()
+
+        val second = cache.get(file, methodA)
+        assertEquals(1, loadCount)
+        assertEquals(size, second.node.instructions.size())
+        second.node.instructions.clear()
+
+        assertEquals(size, cache.get(file, methodA).node.instructions.size())
+        assertEquals(1, loadCount)
+    }
+
+    fun testChangedJarIsNotReadFromCache() {
+        val cache = SharedInlineCache(1000)
+        val jar = writeJar(V1_6, 1)
+        val file = jarEntry(jar)
+
+        val size = cache.get(file, methodA).node.instructions.size()
+        cache.get(file, methodA)
+        assertEquals(1, loadCount)
+
+        val timeStamp = jar.lastModified()
+        writeJar(V1_6, 3)
+        jar.setLastModified(timeStamp)
+        val changedSize = cache.get(file, methodA).node.instructions.size()
+        assertEquals(2, loadCount)
+        assertTrue("$changedSize should be greater than $size", changedSize > size)
+
+        val length = jar.length()
+        jar.setLastModified(timeStamp + 10000)
+        assertEquals(length, jar.length())
+        cache.get(file, methodA)
+        assertEquals(3, loadCount)
+    }
+
+    fun testEvictionInLruOrder() {
+        val jar = writeJar(V1_6, 1)
+        val file = jarEntry(jar)
+        val size = SharedInlineCache(1000).get(file, methodA).node.instructions.size()
+
+        val cache = SharedInlineCache(size * 2)
+        loadCount = 0
+        cache.get(file, methodA)
+        cache.get(file, methodB)
+        cache.get(file, methodA)
+        assertEquals(2, loadCount)
+
+        // b is the least recently used entry, so it's evicted when c doesn't fit
+        cache.get(file, methodC)
+        assertEquals(3, loadCount)
+        cache.get(file, methodA)
+        assertEquals(3, loadCount)
+        cache.get(file, methodB)
+        assertEquals(4, loadCount)
+    }
+
+    fun testClassOutsideOfJarIsNotCached() {
+        val cache = SharedInlineCache(1000)
+        val classFile = File(tmpdir, "test/A.class")
+        classFile.parentFile.mkdirs()
+        classBytes = generateClass(V1_6, 1)
+        classFile.writeBytes(classBytes)
+        val file = VirtualFileManager.getInstance().getFileSystem(StandardFileSystems.FILE_PROTOCOL).findFileByPath(classFile.path)!!
+
+        cache.get(file, methodA)
+        cache.get(file, methodA)
+        assertEquals(2, loadCount)
+    }
+
+    fun testClassVersionIsCheckedOnHit() {
+        val cache = SharedInlineCache(1000)
+        val jar = writeJar(V1_8, 1)
+        val file = jarEntry(jar)
+
+        cache.get(file, methodA, createState(JvmTarget.JVM_1_8))
+        assertEquals(1, loadCount)
+
+        try {
+            cache.get(file, methodA, state)
+            fail("Bytecode of a newer version should not be inlined")
+        }
+        catch (e: UnsupportedOperationException) {
+            assertTrue(e.message, e.message!!.contains("test/A"))
+        }
+        assertEquals(1, loadCount)
+    }
+
+    private fun SharedInlineCache.get(file: VirtualFile, method: Method, state: GenerationState = this@SharedInlineCacheTest.state) =
+            getMethodNode(file, classId, method, state) {
+                loadCount++
+                classBytes
+            }!!
+
+    private fun createState(jvmTarget: JvmTarget): GenerationState {
+        val configuration = environment.configuration.copy()
+        configuration.put(JVMConfigurationKeys.JVM_TARGET, jvmTarget)
+        val file = KotlinTestUtils.createFile("dummy.kt", "", environment.project)
+        val analysisResult = JvmResolveUtil.analyze(file, environment)
+        return GenerationState(
+                environment.project, ClassBuilderFactories.TEST, analysisResult.moduleDescriptor, analysisResult.bindingContext,
+                listOf(file), configuration
+        )
+    }
+
+    private fun writeJar(version: Int, instructionsPerMethod: Int): File {
+        val jar = File(tmpdir, "library.jar")
+        JarOutputStream(FileOutputStream(jar)).use { output ->
+            output.putNextEntry(ZipEntry("test/A.class"))
+            classBytes = generateClass(version, instructionsPerMethod)
+            output.write(classBytes)
+        }
+        return jar
+    }
+
+    private fun jarEntry(jar: File): VirtualFile =
+            VirtualFileManager.getInstance().getFileSystem(StandardFileSystems.JAR_PROTOCOL)
+                    .findFileByPath(jar.path + URLUtil.JAR_SEPARATOR + "test/A.class")!!
+
+    private fun generateClass(version: Int, instructionsPerMethod: Int): ByteArray {
+        val writer = ClassWriter(0)
+        writer.visit(version, ACC_PUBLIC, "test/A", null, "java/lang/Object", null)
+        for (method in listOf(methodA, methodB, methodC)) {
+            val mv = writer.visitMethod(ACC_PUBLIC or ACC_STATIC, method.name, method.descriptor, null, null)
+            mv.visitCode()
+            for (i in 1..instructionsPerMethod) {
+                mv.visitInsn(ICONST_0)
+                mv.visitInsn(POP)
+            }
+            mv.visitInsn(ICONST_1)
+            mv.visitInsn(IRETURN)
+            mv.visitMaxs(1, 0)
+            mv.visitEnd()
+        }
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jvm.runtime
+
+import org.jetbrains.kotlin.cli.jvm.moduleMapping
+import org.jetbrains.kotlin.load.kotlin.reflect.RuntimePackagePartProvider
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+import java.io.InputStream
+import java.net.URLClassLoader
+
+class RuntimePackagePartProviderTest : KtUsefulTestCase() {
+    private lateinit var tmpdir: File
+    private var loadCount = 0
+
+    override fun setUp() {
+        super.setUp()
+        tmpdir = KotlinTestUtils.tmpDirForTest(this)
+    }
+
+    fun testPartsAreMergedFromSeveralModules() {
+        writeModuleMapping("root1", "m1", moduleMapping("test" to listOf("AKt", "BKt")))
+        writeModuleMapping("root2", "m2", moduleMapping("test" to listOf("BKt", "CKt"), "other" to listOf("OKt")))
+        val provider = RuntimePackagePartProvider(createClassLoader("root1", "root2"))
+
+        provider.registerModule("m1")
+        assertEquals(listOf("AKt", "BKt"), provider.findPackageParts("test"))
+        assertEquals(emptyList<String>(), provider.findPackageParts("other"))
+
+        provider.registerModule("m2")
+        assertEquals(listOf("AKt", "BKt", "CKt"), provider.findPackageParts("test"))
+        assertEquals(listOf("OKt"), provider.findPackageParts("other"))
+    }
+
+    fun testModuleIsRegisteredOnce() {
+        writeModuleMapping("root", "m", moduleMapping("test" to listOf("AKt")))
+        val provider = RuntimePackagePartProvider(createClassLoader("root"))
+
+        provider.registerModule("m")
+        writeModuleMapping("root", "m", moduleMapping("test" to listOf("BKt")))
+        provider.registerModule("m")
+
+        assertEquals(listOf("AKt"), provider.findPackageParts("test"))
+        assertEquals(1, loadCount)
+    }
+
+    fun testMissingModuleIsRegisteredOnce() {
+        val provider = RuntimePackagePartProvider(createClassLoader())
+
+        provider.registerModule("missing")
+        provider.registerModule("missing")
+
+        assertEquals(emptyList<String>(), provider.findPackageParts("test"))
+        assertEquals(1, loadCount)
+    }
+
+    private fun writeModuleMapping(root: String, moduleName: String, bytes: ByteArray) {
+        val file = File(tmpdir, "$root/META-INF/$moduleName.kotlin_module")
+        file.parentFile.mkdirs()
+        file.writeBytes(bytes)
+    }
+
+    private fun createClassLoader(vararg roots: String): ClassLoader =
+            object : URLClassLoader(roots.map { File(tmpdir, it).toURI().toURL() }.toTypedArray(), null) {
+                override fun getResourceAsStream(name: String): InputStream? {
+                    loadCount++
+                    return super.getResourceAsStream(name)
+                }
+            }
+}
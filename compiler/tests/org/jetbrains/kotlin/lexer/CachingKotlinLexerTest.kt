@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.lexer
+
+import com.intellij.lexer.Lexer
+import junit.framework.TestCase
+
+class CachingKotlinLexerTest : TestCase() {
+    private val text = "package test\n\n" +
+                       "/** Doc */\n" +
+                       "fun foo(x: Int): String {\n" +
+                       "    val s = \"a\$x\${x + 1}b\" // comment\n" +
+                       "    return \"\"\"raw\n\$s\"\"\" + '\\n' /* block */\n" +
+                       "}\n"
+
+    private fun tokens(lexer: Lexer): List<String> {
+        val result = arrayListOf<String>()
+        while (lexer.tokenType != null) {
+            result.add("${lexer.tokenType} [${lexer.tokenStart}, ${lexer.tokenEnd}) state ${lexer.state}")
+            lexer.advance()
+        }
+        return result
+    }
+
+    private fun kotlinLexerTokens(startOffset: Int = 0, initialState: Int = 0): List<String> {
+        val lexer = KotlinLexer()
+        lexer.start(text, startOffset, text.length, initialState)
+        return tokens(lexer)
+    }
+
+    fun testWholeText() {
+        val expected = kotlinLexerTokens()
+
+        // The second time the tokens are replayed from the cache
+        for (i in 1..2) {
+            val lexer = CachingKotlinLexer()
+            lexer.start(text)
+            assertEquals(expected, tokens(lexer))
+        }
+    }
+
+    fun testBufferWhichIsNotString() {
+        val lexer = CachingKotlinLexer()
+        lexer.start(StringBuilder(text))
+        assertEquals(kotlinLexerTokens(), tokens(lexer))
+    }
+
+    fun testStartAtOffset() {
+        val offset = text.indexOf("fun")
+        val lexer = CachingKotlinLexer()
+        lexer.start(text, offset, text.length, 0)
+        assertEquals(kotlinLexerTokens(offset), tokens(lexer))
+    }
+
+    fun testRestore() {
+        val lexer = CachingKotlinLexer()
+        lexer.start(text)
+        while (lexer.tokenStart < text.indexOf("fun")) {
+            lexer.advance()
+        }
+
+        val position = lexer.currentPosition
+        val expected = tokens(lexer)
+        assertEquals(kotlinLexerTokens(position.offset, position.state), expected)
+
+        lexer.restore(position)
+        assertEquals(expected, tokens(lexer))
+    }
+}
@@ -47,6 +47,12 @@ public class ReplInterpreterTestGenerated extends AbstractReplInterpreterTest {
         doTest(fileName);
     }
 
+    @TestMetadata("conventionsFromEarlierLines.repl")
+    public void testConventionsFromEarlierLines() throws Exception {
+        String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/conventionsFromEarlierLines.repl");
+        doTest(fileName);
+    }
+
     @TestMetadata("empty.repl")
     public void testEmpty() throws Exception {
         String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/empty.repl");
@@ -95,6 +101,12 @@ public class ReplInterpreterTestGenerated extends AbstractReplInterpreterTest {
         doTest(fileName);
     }
 
+    @TestMetadata("inlineFunctionFromEarlierLine.repl")
+    public void testInlineFunctionFromEarlierLine() throws Exception {
+        String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/inlineFunctionFromEarlierLine.repl");
+        doTest(fileName);
+    }
+
     @TestMetadata("multipleImports.repl")
     public void testMultipleImports() throws Exception {
         String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/repl/multipleImports.repl");
@@ -165,4 +165,16 @@ class JvmNameResolverTest : KtUsefulTestCase() {
 
         (0..4).forEach { assertEquals("kotlin", n.getString(it)) }
     }
+
+    fun testRepeatedLookupsAreCached() {
+        val n = create {
+            string("Lfoo/bar/Baz;", operation = DESC_TO_CLASS_ID, range = 2)
+        }
+
+        assertEquals("foo/bar/Baz", n.getString(0))
+        assertSame(n.getString(0), n.getString(0))
+        assertSame(n.getName(1), n.getName(1))
+        assertSame(n.getClassId(0), n.getClassId(0))
+        assertEquals(n.getClassId(0), n.getClassId(1))
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util
+
+import junit.framework.TestCase
+import java.util.*
+
+class PersistentTrieMapTest : TestCase() {
+    private class CollidingKey(val value: Int) {
+        override fun hashCode() = value % 7
+
+        override fun equals(other: Any?) = other is CollidingKey && other.value == value
+
+        override fun toString() = "Key($value)"
+    }
+
+    fun testEmpty() {
+        val map = PersistentTrieMap.empty<String, Int>()
+        assertTrue(map.isEmpty())
+        assertNull(map["a"])
+        assertSame(map, map.remove("a"))
+    }
+
+    fun testUpdatesDoNotAffectOriginal() {
+        val original = PersistentTrieMap.empty<String, Int>().put("a", 1).put("b", 2)
+        val updated = original.put("a", 3).remove("b").put("c", 4)
+
+        assertEquals(mapOf("a" to 1, "b" to 2), original.toMap())
+        assertEquals(mapOf("a" to 3, "c" to 4), updated.toMap())
+    }
+
+    fun testNoOpUpdatesReturnSameInstance() {
+        val map = PersistentTrieMap.empty<String, Int>().put("a", 1)
+        assertSame(map, map.put("a", 1))
+        assertSame(map, map.remove("b"))
+    }
+
+    fun testRandomOperations() {
+        doTestRandomOperations { Random(it.toLong()).nextInt() }
+    }
+
+    fun testRandomOperationsWithCollisions() {
+        doTestRandomOperations { CollidingKey(it) }
+    }
+
+    private fun doTestRandomOperations(createKey: (Int) -> Any) {
+        val random = Random(42)
+        var map = PersistentTrieMap.empty<Any, Int>()
+        val expected = HashMap<Any, Int>()
+
+        for (i in 0..9999) {
+            val key = createKey(random.nextInt(500))
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key)
+                expected.remove(key)
+            }
+            else {
+                val value = random.nextInt(10)
+                map = map.put(key, value)
+                expected.put(key, value)
+            }
+            assertEquals(expected.size, map.size)
+        }
+
+        assertEquals(expected, map.toMap())
+        for ((key, value) in expected) {
+            assertEquals(value, map[key])
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.jetbrains.kotlin.config
 enum class JvmTarget(val string: String) {
     JVM_1_6("1.6"),
     JVM_1_8("1.8"),
+    JVM_9("9"),
     ;
 
     companion object {
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.utils
+
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.io.URLUtil
+import java.io.File
+
+/**
+ * Identifies the contents of a file in a jar by the path of the file and the size and modification time of the jar,
+ * so that caches shared between compilations in the process (e.g. in the compile daemon) never return data of a changed jar.
+ */
+data class JarEntryStamp(val path: String, val jarTimeStamp: Long, val jarLength: Long) {
+    companion object {
+        /**
+         * Returns null for files outside of jars (e.g. outputs of other modules): they can be rewritten between compilations
+         * faster than the file modification time changes, so they shouldn't be cached
+         */
+        @JvmStatic
+        fun create(file: VirtualFile): JarEntryStamp? {
+            val path = file.path
+            val separatorIndex = path.indexOf(URLUtil.JAR_SEPARATOR)
+            if (separatorIndex < 0) return null
+
+            val jar = File(path.substring(0, separatorIndex))
+            if (!jar.isFile) return null
+
+            return JarEntryStamp(path, jar.lastModified(), jar.length())
+        }
+    }
+}
@@ -43,13 +43,15 @@ private fun differenceModulo(a: Long, b: Long, c: Long): Long {
  *
  * No validation on passed parameters is performed. The given parameters should satisfy the condition: either
  * `step > 0` and `start >= end`, or `step < 0` and`start >= end`.
+ *
+ * Called from loops over stepped ranges generated by the JVM back-end, so it's a part of the binary interface of the runtime.
  * @param start first element of the progression
  * @param end ending bound for the progression
  * @param step increment, or difference of successive elements in the progression
  * @return the final element of the progression
  * @suppress
  */
-internal fun getProgressionLastElement(start: Int, end: Int, step: Int): Int {
+public fun getProgressionLastElement(start: Int, end: Int, step: Int): Int {
     if (step > 0) {
         return end - differenceModulo(end, start, step)
     }
@@ -68,13 +70,15 @@ internal fun getProgressionLastElement(start: Int, end: Int, step: Int): Int {
  *
  * No validation on passed parameters is performed. The given parameters should satisfy the condition: either
  * `step > 0` and `start >= end`, or `step < 0` and`start >= end`.
+ *
+ * Called from loops over stepped ranges generated by the JVM back-end, so it's a part of the binary interface of the runtime.
  * @param start first element of the progression
  * @param end ending bound for the progression
  * @param step increment, or difference of successive elements in the progression
  * @return the final element of the progression
  * @suppress
  */
-internal fun getProgressionLastElement(start: Long, end: Long, step: Long): Long {
+public fun getProgressionLastElement(start: Long, end: Long, step: Long): Long {
     if (step > 0) {
         return end - differenceModulo(end, start, step)
     }
@@ -43,7 +43,16 @@ class JvmNameResolver(
         this.trimToSize()
     }
 
-    override fun getString(index: Int): String {
+    // Applying the record operations allocates new strings, so resolved values are cached per index.
+    // Cached values are immutable, so a racy publication only leads to a duplicate computation at worst
+    private val stringCache = arrayOfNulls<String>(records.size)
+    private val nameCache = arrayOfNulls<Name>(records.size)
+    private val classIdCache = arrayOfNulls<ClassId>(records.size)
+
+    override fun getString(index: Int): String =
+            stringCache[index] ?: computeString(index).apply { stringCache[index] = this }
+
+    private fun computeString(index: Int): String {
         val record = records[index]
 
         var string = when {
@@ -83,9 +92,13 @@ class JvmNameResolver(
         return string
     }
 
-    override fun getName(index: Int) = Name.guessByFirstCharacter(getString(index))
+    override fun getName(index: Int): Name =
+            nameCache[index] ?: Name.guessByFirstCharacter(getString(index)).apply { nameCache[index] = this }
+
+    override fun getClassId(index: Int): ClassId =
+            classIdCache[index] ?: computeClassId(index).apply { classIdCache[index] = this }
 
-    override fun getClassId(index: Int): ClassId {
+    private fun computeClassId(index: Int): ClassId {
         val string = getString(index)
         val lastSlash = string.lastIndexOf('/')
         val packageName =
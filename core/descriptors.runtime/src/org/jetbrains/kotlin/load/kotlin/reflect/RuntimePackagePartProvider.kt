@@ -23,7 +23,16 @@ import java.util.concurrent.ConcurrentHashMap
 class RuntimePackagePartProvider(private val classLoader: ClassLoader) : PackagePartProvider {
     private val module2Mapping = ConcurrentHashMap<String, ModuleMapping>()
 
+    // Package FQ name -> names of the package parts from all registered modules. Values are replaced on registration of a module,
+    // so that findPackageParts doesn't need to look into each module mapping and doesn't need any synchronization
+    private val packageParts = ConcurrentHashMap<String, List<String>>()
+
     fun registerModule(moduleName: String) {
+        // The module is registered each time a package descriptor is computed in a KPackage, so the mapping is read only once.
+        // A module is put into module2Mapping only after its parts are merged into packageParts, so this check never skips
+        // a module whose parts are not yet visible to findPackageParts
+        if (module2Mapping.containsKey(moduleName)) return
+
         val mapping = try {
             val resourcePath = "META-INF/$moduleName.${ModuleMapping.MAPPING_FILE_EXT}"
             classLoader.getResourceAsStream(resourcePath)?.use { stream ->
@@ -34,10 +43,21 @@ class RuntimePackagePartProvider(private val classLoader: ClassLoader) : Package
             // TODO: do not swallow this exception?
             null
         }
-        module2Mapping.putIfAbsent(moduleName, mapping ?: ModuleMapping.EMPTY)
+
+        synchronized(packageParts) {
+            if (module2Mapping.containsKey(moduleName)) return
+
+            if (mapping != null) {
+                for ((packageFqName, parts) in mapping.packageFqName2Parts) {
+                    packageParts[packageFqName] = ((packageParts[packageFqName] ?: emptyList()) + parts.parts).distinct()
+                }
+            }
+
+            module2Mapping[moduleName] = mapping ?: ModuleMapping.EMPTY
+        }
     }
 
     override fun findPackageParts(packageFqName: String): List<String> {
-        return module2Mapping.values.mapNotNull { it.findPackageParts(packageFqName) }.flatMap { it.parts }.distinct()
+        return packageParts[packageFqName] ?: emptyList()
     }
 }
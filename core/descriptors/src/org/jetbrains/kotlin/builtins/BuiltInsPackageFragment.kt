@@ -23,6 +23,7 @@ import org.jetbrains.kotlin.serialization.deserialization.DeserializedPackageFra
 import org.jetbrains.kotlin.serialization.deserialization.NameResolverImpl
 import org.jetbrains.kotlin.serialization.deserialization.descriptors.DeserializedPackageMemberScope
 import org.jetbrains.kotlin.storage.StorageManager
+import org.jetbrains.kotlin.storage.getValue
 import java.io.InputStream
 
 class BuiltInsPackageFragment(
@@ -31,7 +32,14 @@ class BuiltInsPackageFragment(
         module: ModuleDescriptor,
         loadResource: (path: String) -> InputStream?
 ) : DeserializedPackageFragment(fqName, storageManager, module, loadResource) {
-    private val proto = loadResourceSure(BuiltInSerializerProtocol.getBuiltInsFilePath(fqName)).use { stream ->
+    // The package contents are read on first access, so that packages which are never used are not deserialized at all
+    private val proto by storageManager.createLazyValue { loadProto() }
+
+    private val nameResolver by storageManager.createLazyValue { NameResolverImpl(proto.strings, proto.qualifiedNames) }
+
+    override val classDataFinder by storageManager.createLazyValue { BuiltInsClassDataFinder(proto, nameResolver) }
+
+    private fun loadProto(): BuiltInsProtoBuf.BuiltIns = loadResourceSure(BuiltInSerializerProtocol.getBuiltInsFilePath(fqName)).use { stream ->
         val version = BuiltInsBinaryVersion.readFrom(stream)
 
         if (!version.isCompatible()) {
@@ -46,10 +54,6 @@ class BuiltInsPackageFragment(
         BuiltInsProtoBuf.BuiltIns.parseFrom(stream, BuiltInSerializerProtocol.extensionRegistry)
     }
 
-    private val nameResolver = NameResolverImpl(proto.strings, proto.qualifiedNames)
-
-    override val classDataFinder = BuiltInsClassDataFinder(proto, nameResolver)
-
     override fun computeMemberScope() =
             DeserializedPackageMemberScope(
                     this, proto.`package`, nameResolver, containerSource = null, components = components,
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.builtins;
 
 import kotlin.collections.SetsKt;
+import kotlin.jvm.functions.Function0;
 import kotlin.jvm.functions.Function1;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -34,6 +35,7 @@ import org.jetbrains.kotlin.resolve.ImportPath;
 import org.jetbrains.kotlin.resolve.scopes.MemberScope;
 import org.jetbrains.kotlin.serialization.deserialization.AdditionalClassPartsProvider;
 import org.jetbrains.kotlin.serialization.deserialization.PlatformDependentDeclarationFilter;
+import org.jetbrains.kotlin.storage.NotNullLazyValue;
 import org.jetbrains.kotlin.storage.StorageManager;
 import org.jetbrains.kotlin.types.*;
 import org.jetbrains.kotlin.types.checker.KotlinTypeChecker;
@@ -72,9 +74,7 @@ public abstract class KotlinBuiltIns {
 
     private final Set<PackageFragmentDescriptor> builtInsPackageFragments;
 
-    private final Map<PrimitiveType, SimpleType> primitiveTypeToArrayKotlinType;
-    private final Map<KotlinType, SimpleType> primitiveKotlinTypeToKotlinArrayType;
-    private final Map<SimpleType, SimpleType> kotlinArrayTypeToPrimitiveKotlinType;
+    private final NotNullLazyValue<Primitives> primitives;
     private final StorageManager storageManager;
 
     public static final FqNames FQ_NAMES = new FqNames();
@@ -110,12 +110,25 @@ public abstract class KotlinBuiltIns {
 
         builtInsPackageFragments = new LinkedHashSet<PackageFragmentDescriptor>(packageNameToPackageFragment.values());
 
-        primitiveTypeToArrayKotlinType = new EnumMap<PrimitiveType, SimpleType>(PrimitiveType.class);
-        primitiveKotlinTypeToKotlinArrayType = new HashMap<KotlinType, SimpleType>();
-        kotlinArrayTypeToPrimitiveKotlinType = new HashMap<SimpleType, SimpleType>();
-        for (PrimitiveType primitive : PrimitiveType.values()) {
-            makePrimitive(primitive);
-        }
+        // Primitive and primitive array classes are deserialized on first use rather than here,
+        // so that creating built-ins doesn't force loading of the built-ins package contents
+        primitives = storageManager.createLazyValue(new Function0<Primitives>() {
+            @Override
+            public Primitives invoke() {
+                Primitives primitives = new Primitives();
+                for (PrimitiveType primitive : PrimitiveType.values()) {
+                    makePrimitive(primitives, primitive);
+                }
+                return primitives;
+            }
+        });
+    }
+
+    private static class Primitives {
+        public final Map<PrimitiveType, SimpleType> primitiveTypeToArrayKotlinType =
+                new EnumMap<PrimitiveType, SimpleType>(PrimitiveType.class);
+        public final Map<KotlinType, SimpleType> primitiveKotlinTypeToKotlinArrayType = new HashMap<KotlinType, SimpleType>();
+        public final Map<SimpleType, SimpleType> kotlinArrayTypeToPrimitiveKotlinType = new HashMap<SimpleType, SimpleType>();
     }
 
     @NotNull
@@ -128,13 +141,13 @@ public abstract class KotlinBuiltIns {
         return PlatformDependentDeclarationFilter.NoPlatformDependent.INSTANCE;
     }
 
-    private void makePrimitive(@NotNull PrimitiveType primitiveType) {
+    private void makePrimitive(@NotNull Primitives primitives, @NotNull PrimitiveType primitiveType) {
         SimpleType type = getBuiltInTypeByClassName(primitiveType.getTypeName().asString());
         SimpleType arrayType = getBuiltInTypeByClassName(primitiveType.getArrayTypeName().asString());
 
-        primitiveTypeToArrayKotlinType.put(primitiveType, arrayType);
-        primitiveKotlinTypeToKotlinArrayType.put(type, arrayType);
-        kotlinArrayTypeToPrimitiveKotlinType.put(arrayType, type);
+        primitives.primitiveTypeToArrayKotlinType.put(primitiveType, arrayType);
+        primitives.primitiveKotlinTypeToKotlinArrayType.put(type, arrayType);
+        primitives.kotlinArrayTypeToPrimitiveKotlinType.put(arrayType, type);
     }
 
 
@@ -707,7 +720,7 @@ public abstract class KotlinBuiltIns {
             }
             return arrayType.getArguments().get(0).getType();
         }
-        KotlinType primitiveType = kotlinArrayTypeToPrimitiveKotlinType.get(TypeUtils.makeNotNullable(arrayType));
+        KotlinType primitiveType = primitives.invoke().kotlinArrayTypeToPrimitiveKotlinType.get(TypeUtils.makeNotNullable(arrayType));
         if (primitiveType == null) {
             throw new IllegalStateException("not array: " + arrayType);
         }
@@ -716,7 +729,7 @@ public abstract class KotlinBuiltIns {
 
     @NotNull
     public SimpleType getPrimitiveArrayKotlinType(@NotNull PrimitiveType primitiveType) {
-        return primitiveTypeToArrayKotlinType.get(primitiveType);
+        return primitives.invoke().primitiveTypeToArrayKotlinType.get(primitiveType);
     }
 
     /**
@@ -724,7 +737,7 @@ public abstract class KotlinBuiltIns {
      */
     @Nullable
     public SimpleType getPrimitiveArrayKotlinTypeByPrimitiveKotlinType(@NotNull KotlinType kotlinType) {
-        return primitiveKotlinTypeToKotlinArrayType.get(kotlinType);
+        return primitives.invoke().primitiveKotlinTypeToKotlinArrayType.get(kotlinType);
     }
 
     public static boolean isPrimitiveArray(@NotNull FqNameUnsafe arrayFqName) {
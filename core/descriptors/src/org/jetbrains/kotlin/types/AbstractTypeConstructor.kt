@@ -18,10 +18,13 @@ package org.jetbrains.kotlin.types
 
 import org.jetbrains.kotlin.descriptors.SupertypeLoopChecker
 import org.jetbrains.kotlin.storage.StorageManager
+import org.jetbrains.kotlin.types.checker.SupertypeConstructorsClosure
 
 abstract class AbstractTypeConstructor(storageManager: StorageManager) : TypeConstructor {
     override fun getSupertypes() = supertypes().supertypesWithoutCycles
 
+    internal var supertypeConstructorsClosure: SupertypeConstructorsClosure? = null
+
     // In current version diagnostic about loops in supertypes is reported on each vertex (supertype reference) that lies on the cycle.
     // To achieve that we store both versions of supertypes --- before and after loops disconnection.
     // The first one is used for computation of neighbours in supertypes graph (see Companion.computeNeighbours)
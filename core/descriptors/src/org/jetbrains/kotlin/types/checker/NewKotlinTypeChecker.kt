@@ -206,8 +206,11 @@ object NewKotlinTypeChecker : KotlinTypeChecker {
             baseType: SimpleType,
             constructor: TypeConstructor
     ): List<SimpleType> {
-        fun TypeCheckerContext.collectAndFilter(classType: SimpleType, constructor: TypeConstructor) =
-                selectOnlyPureKotlinSupertypes(collectAllSupertypesWithGivenTypeConstructor(classType, constructor))
+        fun TypeCheckerContext.collectAndFilter(classType: SimpleType, constructor: TypeConstructor): List<SimpleType> {
+            if (!SupertypeConstructorsClosure.mayHaveSupertypeWithConstructor(classType.constructor, constructor)) return emptyList()
+
+            return selectOnlyPureKotlinSupertypes(collectAllSupertypesWithGivenTypeConstructor(classType, constructor))
+        }
 
         if (baseType.isClassType) {
             return collectAndFilter(baseType, constructor)
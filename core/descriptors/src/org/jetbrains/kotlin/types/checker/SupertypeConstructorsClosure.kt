@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.types.checker
+
+import org.jetbrains.kotlin.types.AbstractTypeConstructor
+import org.jetbrains.kotlin.types.TypeConstructor
+import org.jetbrains.kotlin.types.lowerIfFlexible
+import org.jetbrains.kotlin.types.upperIfFlexible
+import java.util.*
+
+/**
+ * Type constructors of all supertypes of a class (including the class itself). It allows to answer "no" to subtyping questions
+ * between unrelated classes, which are the most frequent ones during overload resolution, without substituting the whole hierarchy.
+ *
+ * The closure is computed once per type constructor and stored in it. Supertypes which are still being computed
+ * are seen as error types (see [AbstractTypeConstructor]), so a closure containing error types is never stored.
+ */
+internal class SupertypeConstructorsClosure private constructor(private val constructors: Set<TypeConstructor>) {
+    companion object {
+        fun mayHaveSupertypeWithConstructor(classConstructor: TypeConstructor, supertypeConstructor: TypeConstructor): Boolean {
+            if (classConstructor !is AbstractTypeConstructor) return true
+
+            val closure = classConstructor.supertypeConstructorsClosure
+                          ?: compute(classConstructor)?.apply { classConstructor.supertypeConstructorsClosure = this }
+                          ?: return true
+
+            return supertypeConstructor in closure.constructors
+        }
+
+        private fun compute(classConstructor: TypeConstructor): SupertypeConstructorsClosure? {
+            val result = HashSet<TypeConstructor>()
+            val queue = ArrayDeque<TypeConstructor>()
+            result.add(classConstructor)
+            queue.add(classConstructor)
+
+            while (queue.isNotEmpty()) {
+                for (supertype in queue.poll().supertypes) {
+                    if (supertype.isError) return null
+
+                    // Type checker uses lower bounds of flexible supertypes, upper ones are added to be on the safe side
+                    for (constructor in listOf(supertype.lowerIfFlexible().constructor, supertype.upperIfFlexible().constructor)) {
+                        if (result.add(constructor)) {
+                            queue.add(constructor)
+                        }
+                    }
+                }
+            }
+
+            return SupertypeConstructorsClosure(result)
+        }
+    }
+}
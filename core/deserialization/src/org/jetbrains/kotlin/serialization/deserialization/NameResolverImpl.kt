@@ -28,21 +28,28 @@ class NameResolverImpl(
         private val strings: ProtoBuf.StringTable,
         private val qualifiedNames: ProtoBuf.QualifiedNameTable
 ) : NameResolver {
+    // The same indices are resolved many times while deserializing a single class, so results are cached per index.
+    // All cached values are immutable, so racy publication is benign: concurrent readers may compute a value twice at worst
+    private val nameCache = arrayOfNulls<Name>(strings.stringCount)
+    private val classIdCache = arrayOfNulls<ClassId>(qualifiedNames.qualifiedNameCount)
+    private val packageFqNameCache = arrayOfNulls<FqName>(qualifiedNames.qualifiedNameCount)
 
-    override fun getString(index: Int) = strings.getString(index)
+    override fun getString(index: Int): String = strings.getString(index)
 
-    override fun getName(index: Int) = Name.guessByFirstCharacter(strings.getString(index))
+    override fun getName(index: Int): Name =
+            nameCache[index] ?: Name.guessByFirstCharacter(strings.getString(index)).apply { nameCache[index] = this }
 
-    override fun getClassId(index: Int): ClassId {
+    override fun getClassId(index: Int): ClassId =
+            classIdCache[index] ?: computeClassId(index).apply { classIdCache[index] = this }
+
+    fun getPackageFqName(index: Int): FqName =
+            packageFqNameCache[index] ?: FqName.fromSegments(traverseIds(index).first).apply { packageFqNameCache[index] = this }
+
+    private fun computeClassId(index: Int): ClassId {
         val (packageFqNameSegments, relativeClassNameSegments, isLocal) = traverseIds(index)
         return ClassId(FqName.fromSegments(packageFqNameSegments), FqName.fromSegments(relativeClassNameSegments), isLocal)
     }
 
-    fun getPackageFqName(index: Int): FqName {
-        val packageNameSegments = traverseIds(index).first
-        return FqName.fromSegments(packageNameSegments)
-    }
-
     private fun traverseIds(startingIndex: Int): Triple<List<String>, List<String>, Boolean> {
         var index = startingIndex
         val packageNameSegments = LinkedList<String>()
@@ -50,6 +50,36 @@ internal abstract class FunctionCaller<out M : Member?>(
         }
     }
 
+    // Static members of objects and companions take the instance of the object as the first argument, which is not passed to the member
+    protected val ignoresFirstArgument: Boolean
+        get() = instanceClass != null && Modifier.isStatic(member!!.modifiers)
+
+    private var methodHandleInvoker: MethodHandleInvoker? = null
+
+    protected open fun createMethodHandleInvoker(): MethodHandleInvoker? = null
+
+    protected fun getMethodHandleInvoker(): MethodHandleInvoker? {
+        if (!METHOD_HANDLES_AVAILABLE) return null
+
+        val invoker = methodHandleInvoker
+        if (invoker != null && invoker.isUpToDate) return invoker
+
+        return createMethodHandleInvoker().apply { methodHandleInvoker = this }
+    }
+
+    /**
+     * Calls the member via a cached method handle if possible, or with [reflectionCall] otherwise.
+     * [args] are all arguments of this caller, as passed to [call]
+     */
+    protected inline fun callWithMethodHandle(args: Array<*>, reflectionCall: () -> Any?): Any? {
+        val invoker = getMethodHandleInvoker()
+        if (invoker != null) {
+            val result = invoker.invoke(args)
+            if (result !== MethodHandleInvoker.FALLBACK) return result
+        }
+        return reflectionCall()
+    }
+
     // Constructors
 
     class Constructor(constructor: ReflectConstructor<*>) : FunctionCaller<ReflectConstructor<*>>(
@@ -61,9 +91,11 @@ internal abstract class FunctionCaller<out M : Member?>(
             },
             constructor.genericParameterTypes
     ) {
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forConstructor(member)
+
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.newInstance(*args)
+            return callWithMethodHandle(args) { member.newInstance(*args) }
         }
     }
 
@@ -80,6 +112,8 @@ internal abstract class FunctionCaller<out M : Member?>(
     ) {
         private val isVoidMethod = returnType == Void.TYPE
 
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forMethod(member, ignoresFirstArgument)
+
         protected fun callMethod(instance: Any?, args: Array<*>): Any? {
             val result = member.invoke(instance, *args)
 
@@ -91,14 +125,14 @@ internal abstract class FunctionCaller<out M : Member?>(
     class StaticMethod(method: ReflectMethod) : Method(method) {
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return callMethod(null, args)
+            return callWithMethodHandle(args) { callMethod(null, args) }
         }
     }
 
     class InstanceMethod(method: ReflectMethod) : Method(method) {
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return callMethod(args[0], args.copyOfRange(1, args.size))
+            return callWithMethodHandle(args) { callMethod(args[0], args.copyOfRange(1, args.size)) }
         }
     }
 
@@ -106,7 +140,7 @@ internal abstract class FunctionCaller<out M : Member?>(
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
             checkObjectInstance(args.firstOrNull())
-            return callMethod(null, args.copyOfRange(1, args.size))
+            return callWithMethodHandle(args) { callMethod(null, args.copyOfRange(1, args.size)) }
         }
     }
 
@@ -121,9 +155,11 @@ internal abstract class FunctionCaller<out M : Member?>(
             if (requiresInstance) field.declaringClass else null,
             emptyArray()
     ) {
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forFieldGetter(member, ignoresFirstArgument)
+
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.get(if (instanceClass != null) args.first() else null)
+            return callWithMethodHandle(args) { member.get(if (instanceClass != null) args.first() else null) }
         }
     }
 
@@ -144,9 +180,11 @@ internal abstract class FunctionCaller<out M : Member?>(
             }
         }
 
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forFieldSetter(member, ignoresFirstArgument)
+
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.set(if (instanceClass != null) args.first() else null, args.last())
+            return callWithMethodHandle(args) { member.set(if (instanceClass != null) args.first() else null, args.last()) }
         }
     }
 
@@ -170,9 +208,11 @@ internal abstract class FunctionCaller<out M : Member?>(
             klass,
             emptyArray()
     ) {
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forFieldGetter(member, ignoresFirstArgument)
+
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.get(args.first())
+            return callWithMethodHandle(args) { member.get(args.first()) }
         }
     }
 
@@ -196,9 +236,22 @@ internal abstract class FunctionCaller<out M : Member?>(
             klass,
             arrayOf(field.genericType)
     ) {
+        override fun createMethodHandleInvoker(): MethodHandleInvoker? = MethodHandleInvoker.forFieldSetter(member, ignoresFirstArgument)
+
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.set(instanceClass, args.last())
+            return callWithMethodHandle(args) { member.set(instanceClass, args.last()) }
+        }
+    }
+
+    companion object {
+        // java.lang.invoke is not available on Java 6 and older versions of Android
+        private val METHOD_HANDLES_AVAILABLE = try {
+            Class.forName("java.lang.invoke.MethodHandles")
+            true
+        }
+        catch (e: ClassNotFoundException) {
+            false
         }
     }
 }
@@ -180,6 +180,10 @@ internal class KClassImpl<T : Any>(override val jClass: Class<T>) : KDeclaration
             (memberScope.getContributedVariables(name, NoLookupLocation.FROM_REFLECTION) +
              staticScope.getContributedVariables(name, NoLookupLocation.FROM_REFLECTION))
 
+    // Only members with the given name are loaded from the class metadata, unlike in Data.allNonStaticMembers
+    internal fun getNonStaticProperties(name: Name): Collection<KCallableImpl<*>> =
+            createMembers(memberScope.getContributedVariables(name, NoLookupLocation.FROM_REFLECTION))
+
     override fun getFunctions(name: Name): Collection<FunctionDescriptor> =
             memberScope.getContributedFunctions(name, NoLookupLocation.FROM_REFLECTION) +
             staticScope.getContributedFunctions(name, NoLookupLocation.FROM_REFLECTION)
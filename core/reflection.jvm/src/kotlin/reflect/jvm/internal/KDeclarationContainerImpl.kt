@@ -48,7 +48,12 @@ internal abstract class KDeclarationContainerImpl : ClassBasedDeclarationContain
 
     abstract fun getFunctions(name: Name): Collection<FunctionDescriptor>
 
-    protected fun getMembers(scope: MemberScope, belonginess: MemberBelonginess): Collection<KCallableImpl<*>> {
+    protected fun getMembers(scope: MemberScope, belonginess: MemberBelonginess): Collection<KCallableImpl<*>> =
+            createMembers(scope.getContributedDescriptors().filter { descriptor ->
+                descriptor is CallableMemberDescriptor && belonginess.accept(descriptor)
+            })
+
+    protected fun createMembers(descriptors: Collection<DeclarationDescriptor>): Collection<KCallableImpl<*>> {
         val visitor = object : DeclarationDescriptorVisitorEmptyBodies<KCallableImpl<*>, Unit>() {
             override fun visitPropertyDescriptor(descriptor: PropertyDescriptor, data: Unit): KCallableImpl<*> =
                     createProperty(descriptor)
@@ -60,10 +65,8 @@ internal abstract class KDeclarationContainerImpl : ClassBasedDeclarationContain
                     throw IllegalStateException("No constructors should appear in this scope: $descriptor")
         }
 
-        return scope.getContributedDescriptors().mapNotNull { descriptor ->
-            if (descriptor is CallableMemberDescriptor &&
-                descriptor.visibility != Visibilities.INVISIBLE_FAKE &&
-                belonginess.accept(descriptor))
+        return descriptors.mapNotNull { descriptor ->
+            if (descriptor is CallableMemberDescriptor && descriptor.visibility != Visibilities.INVISIBLE_FAKE)
                 descriptor.accept(visitor, Unit)
             else null
         }.toReadOnlyList()
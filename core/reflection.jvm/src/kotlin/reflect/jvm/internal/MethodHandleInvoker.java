@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal;
+
+import kotlin.Unit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+
+/**
+ * Calls a member via a method handle adapted to the type {@code (Object[])Object}, which is much faster than {@link Method#invoke}
+ * or {@link Field#get} once it's compiled by the JIT. Exceptions thrown by methods and constructors are wrapped
+ * into {@link InvocationTargetException}, void results are replaced with {@link Unit}, like {@link FunctionCaller} does.
+ *
+ * The handle is obtained with the access rights of the public lookup, or without access checks if the member is accessible,
+ * so it should be recreated once the accessibility of the member changes (see {@link #isUpToDate()}).
+ *
+ * Note that this class can only be loaded if java.lang.invoke is available (Java 7+).
+ */
+class MethodHandleInvoker {
+    // Is returned if the call should be made via reflection to get exactly the same result or exception (e.g. when Java reflection
+    // converts an argument with a widening primitive conversion, or reports an argument of a wrong type)
+    public static final Object FALLBACK = new Object();
+
+    private static final MethodHandle WRAP_TARGET_EXCEPTION;
+    private static final MethodHandle UNIT = MethodHandles.constant(Object.class, Unit.INSTANCE);
+
+    static {
+        try {
+            WRAP_TARGET_EXCEPTION = MethodHandles.lookup().findStatic(
+                    MethodHandleInvoker.class, "throwInvocationTargetException", MethodType.methodType(Object.class, Throwable.class)
+            );
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final AccessibleObject member;
+    private final boolean accessible;
+    // null if the member can't be called via a method handle
+    private final MethodHandle handle;
+    private final boolean requiresReceiver;
+
+    private MethodHandleInvoker(@NotNull AccessibleObject member, boolean accessible, @Nullable MethodHandle handle, boolean requiresReceiver) {
+        this.member = member;
+        this.accessible = accessible;
+        this.handle = handle;
+        this.requiresReceiver = requiresReceiver;
+    }
+
+    public boolean isUpToDate() {
+        return member.isAccessible() == accessible;
+    }
+
+    /**
+     * @return the result of the call or {@link #FALLBACK}
+     */
+    @Nullable
+    public Object invoke(@NotNull Object[] args) throws Throwable {
+        // Java reflection throws NullPointerException for a null receiver, while a method handle would throw it from the callee
+        if (handle == null || (requiresReceiver && args[0] == null)) return FALLBACK;
+
+        try {
+            return handle.invokeExact(args);
+        }
+        catch (ClassCastException e) {
+            return FALLBACK;
+        }
+        catch (NullPointerException e) {
+            // Exceptions from methods and constructors are wrapped, so this one is caused by unboxing of a null argument
+            return FALLBACK;
+        }
+    }
+
+    @NotNull
+    static MethodHandleInvoker forMethod(@NotNull final Method method, boolean ignoreFirstArgument) {
+        return create(method, ignoreFirstArgument, !Modifier.isStatic(method.getModifiers()), new HandleFactory() {
+            @Override
+            public MethodHandle create() throws IllegalAccessException {
+                return wrapTargetException(MethodHandles.publicLookup().unreflect(method));
+            }
+        });
+    }
+
+    @NotNull
+    static MethodHandleInvoker forConstructor(@NotNull final Constructor<?> constructor) {
+        return create(constructor, false, false, new HandleFactory() {
+            @Override
+            public MethodHandle create() throws IllegalAccessException {
+                return wrapTargetException(MethodHandles.publicLookup().unreflectConstructor(constructor));
+            }
+        });
+    }
+
+    @NotNull
+    static MethodHandleInvoker forFieldGetter(@NotNull final Field field, boolean ignoreFirstArgument) {
+        return create(field, ignoreFirstArgument, false, new HandleFactory() {
+            @Override
+            public MethodHandle create() throws IllegalAccessException {
+                return MethodHandles.publicLookup().unreflectGetter(field);
+            }
+        });
+    }
+
+    @NotNull
+    static MethodHandleInvoker forFieldSetter(@NotNull final Field field, boolean ignoreFirstArgument) {
+        return create(field, ignoreFirstArgument, false, new HandleFactory() {
+            @Override
+            public MethodHandle create() throws IllegalAccessException {
+                return MethodHandles.publicLookup().unreflectSetter(field);
+            }
+        });
+    }
+
+    private interface HandleFactory {
+        MethodHandle create() throws IllegalAccessException;
+    }
+
+    @NotNull
+    private static MethodHandleInvoker create(
+            @NotNull AccessibleObject member,
+            boolean ignoreFirstArgument,
+            boolean requiresReceiver,
+            @NotNull HandleFactory factory
+    ) {
+        boolean accessible = member.isAccessible();
+        MethodHandle handle;
+        try {
+            handle = adapt(factory.create(), ignoreFirstArgument);
+        }
+        catch (IllegalAccessException e) {
+            // E.g. a private member which is not made accessible, or a caller-sensitive method
+            handle = null;
+        }
+        catch (SecurityException e) {
+            handle = null;
+        }
+        catch (UnsupportedOperationException e) {
+            // Some method handle transformations are not supported on Android
+            handle = null;
+        }
+        return new MethodHandleInvoker(member, accessible, handle, requiresReceiver);
+    }
+
+    @NotNull
+    private static MethodHandle adapt(@NotNull MethodHandle target, boolean ignoreFirstArgument) {
+        MethodHandle result = target;
+        if (result.type().returnType() == void.class) {
+            result = MethodHandles.filterReturnValue(result, UNIT);
+        }
+
+        int parameterCount = result.type().parameterCount();
+        result = result.asType(MethodType.genericMethodType(parameterCount));
+
+        if (ignoreFirstArgument) {
+            result = MethodHandles.dropArguments(result, 0, Object.class);
+            parameterCount++;
+        }
+
+        // No spreading is needed for callables without parameters, e.g. property getters without receivers
+        return parameterCount == 0
+               ? MethodHandles.dropArguments(result, 0, Object[].class)
+               : result.asSpreader(Object[].class, parameterCount);
+    }
+
+    @NotNull
+    private static MethodHandle wrapTargetException(@NotNull MethodHandle target) {
+        MethodHandle handler = WRAP_TARGET_EXCEPTION.asType(MethodType.methodType(target.type().returnType(), Throwable.class));
+        return MethodHandles.catchException(target, Throwable.class, handler);
+    }
+
+    @SuppressWarnings("unused") // Used via WRAP_TARGET_EXCEPTION
+    private static Object throwInvocationTargetException(Throwable e) throws InvocationTargetException {
+        throw new InvocationTargetException(e);
+    }
+}
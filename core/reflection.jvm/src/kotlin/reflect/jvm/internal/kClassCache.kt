@@ -16,9 +16,41 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.SoftReference
 import java.lang.ref.WeakReference
 import kotlin.reflect.jvm.internal.pcollections.HashPMap
 
+// ClassValue stores the KClass instance in the Class object itself, so reads don't need any synchronization and exactly one instance
+// is created for each Class. The instance is held on a soft reference: otherwise the KClass of a class from a parent class loader
+// (e.g. java.lang.String) would prevent unloading of the class loader of kotlin-reflect.
+// ClassValue is not available on Java 6 and on Android, so the map below is used there
+private val K_CLASS_CACHE_BY_CLASS_VALUE: KClassCacheByClassValue? =
+        try {
+            Class.forName("java.lang.ClassValue")
+            KClassCacheByClassValue()
+        }
+        catch (e: ClassNotFoundException) {
+            null
+        }
+
+private class KClassCacheByClassValue : ClassValue<SoftReference<KClassImpl<*>>>() {
+    @Suppress("UNCHECKED_CAST")
+    override fun computeValue(type: Class<*>): SoftReference<KClassImpl<*>> =
+            SoftReference(KClassImpl(type as Class<Any>))
+
+    fun getOrCreate(jClass: Class<*>): KClassImpl<*> {
+        get(jClass).get()?.let { return it }
+
+        synchronized(this) {
+            while (true) {
+                get(jClass).get()?.let { return it }
+                // The instance has been collected, so nobody can observe it and it can be replaced with a new one
+                remove(jClass)
+            }
+        }
+    }
+}
+
 // TODO: collect nulls periodically
 // Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
@@ -28,6 +60,12 @@ private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
+    val cache = K_CLASS_CACHE_BY_CLASS_VALUE
+    if (cache != null) {
+        @Suppress("UNCHECKED_CAST")
+        return cache.getOrCreate(jClass) as KClassImpl<T>
+    }
+
     val name = jClass.name
     val cached = K_CLASS_CACHE[name]
     if (cached is WeakReference<*>) {
@@ -89,6 +89,11 @@ public class Intrinsics {
         }
     }
 
+    // Called when the inline null check of a platform type expression fails, see -Xcompact-null-checks
+    public static void throwExpressionValueIsNull(String expression) {
+        throw sanitizeStackTrace(new IllegalStateException(expression + " must not be null"));
+    }
+
     public static void checkNotNullExpressionValue(Object value, String message) {
         if (value == null) {
             throw sanitizeStackTrace(new IllegalStateException(message));
@@ -127,6 +132,11 @@ public class Intrinsics {
         }
     }
 
+    // Called when the inline null check of a parameter fails, see -Xcompact-null-checks
+    public static void throwParameterIsNull(String paramName) {
+        throwParameterIsNullException(paramName);
+    }
+
     public static void checkNotNullParameter(Object value, String message) {
         if (value == null) {
             throw sanitizeStackTrace(new IllegalArgumentException(message));
@@ -138,7 +148,7 @@ public class Intrinsics {
 
         // #0 Thread.getStackTrace()
         // #1 Intrinsics.throwParameterIsNullException
-        // #2 Intrinsics.checkParameterIsNotNull
+        // #2 Intrinsics.checkParameterIsNotNull or Intrinsics.throwParameterIsNull
         // #3 our caller
         StackTraceElement caller = stackTraceElements[3];
         String className = caller.getClassName();